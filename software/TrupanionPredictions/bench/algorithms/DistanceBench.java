@@ -0,0 +1,117 @@
+package algorithms;
+
+import java.util.Random;
+
+/**
+ * Timing benchmark for the squared distance kernel: reports the time per dimension
+ * of Distances.squared against a plain in-order loop, for a range of dimension
+ * counts, once the JIT has warmed up.
+ *
+ * Build the project first, then from the project folder:
+ * <pre>
+ *   javac -d build/bench -cp build/classes bench/algorithms/*.java
+ *   java -cp build/classes:build/bench algorithms.DistanceBench
+ * </pre>
+ *
+ * @author Nathan Minor
+ */
+public class DistanceBench {
+
+    // dimension counts measured
+    private static final int[] DIMS = { 1, 2, 3, 4, 7, 8, 16, 32, 64 };
+
+    // number of rows distances are measured between
+    private static final int ROWS = 4096;
+
+    // distances measured per timing, spread over the rows
+    private static final int PAIRS = 4000000;
+
+    // timings made before measuring, so the JIT has compiled both loops
+    private static final int WARMUP_RUNS = 5;
+
+    /**
+     * Executable entry point.
+     * @param args not used
+     */
+    public static void main(String[] args) {
+
+        // local variables
+        Random random = new Random(1);
+        double[] points = null;
+        double sink = 0.0;
+        long kernelNanos = 0;
+        long plainNanos = 0;
+        long start = 0;
+
+        System.out.println("dims\tkernel ns/dim\tplain ns/dim");
+
+        for (int dims : DIMS) {
+
+            points = new double[ROWS * dims];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = random.nextDouble();
+            }
+
+            for (int run = 0; run <= WARMUP_RUNS; run++) {
+                start = System.nanoTime();
+                sink += kernel(points, dims);
+                kernelNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                sink += plain(points, dims);
+                plainNanos = System.nanoTime() - start;
+            }
+
+            System.out.println(dims + "\t" + String.format("%.3f", (double) kernelNanos / PAIRS / dims)
+                    + "\t" + String.format("%.3f", (double) plainNanos / PAIRS / dims));
+        }
+
+        // keep the results live so the loops cannot be optimized away
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Sums the distances over the measured pairs with Distances.squared.
+     * @param points the rows, row-major
+     * @param dims the number of dimensions per row
+     * @return The sum of the distances.
+     */
+    private static double kernel(double[] points, int dims) {
+
+        // local variables
+        double sum = 0.0;
+
+        for (int p = 0; p < PAIRS; p++) {
+            sum += Distances.squared(points, p & (ROWS - 1), points, (p * 7 + 1) & (ROWS - 1), dims);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Sums the distances over the measured pairs with a plain in-order loop.
+     * @param points the rows, row-major
+     * @param dims the number of dimensions per row
+     * @return The sum of the distances.
+     */
+    private static double plain(double[] points, int dims) {
+
+        // local variables
+        double sum = 0.0;
+        double diff = 0.0;
+        int a = 0;
+        int b = 0;
+
+        for (int p = 0; p < PAIRS; p++) {
+            a = (p & (ROWS - 1)) * dims;
+            b = ((p * 7 + 1) & (ROWS - 1)) * dims;
+
+            for (int d = 0; d < dims; d++) {
+                diff = points[a + d] - points[b + d];
+                sum += diff * diff;
+            }
+        }
+
+        return sum;
+    }
+}
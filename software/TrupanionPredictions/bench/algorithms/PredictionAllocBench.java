@@ -0,0 +1,89 @@
+package algorithms;
+
+import data.DataHandling;
+import data.PayoutPrediction;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Allocation benchmark for the prediction kernel: reports the bytes allocated per
+ * policy by ForecastEngine.CalculatePredictions for one forecast month, and by
+ * month-name lookups on a prediction, once the JIT has warmed up.
+ *
+ * Allocation is read from the current thread's allocation counter
+ * (com.sun.management.ThreadMXBean, available on HotSpot based JVMs), so the engine
+ * is run sequentially to keep all of its allocation on this thread.
+ *
+ * Build the project first, then from the project folder:
+ * <pre>
+ *   javac -d build/bench -cp build/classes bench/algorithms/*.java
+ *   java -cp build/classes:build/bench algorithms.PredictionAllocBench ClaimLevelSort.csv [month]
+ * </pre>
+ *
+ * @author Nathan Minor
+ */
+public class PredictionAllocBench {
+
+    // runs made before measuring, so the JIT has compiled the kernel
+    private static final int WARMUP_RUNS = 10;
+
+    // month-name lookups per measurement
+    private static final int LOOKUPS = 100000;
+
+    /**
+     * Executable entry point.
+     * @param args absolute path of the claim CSV file, then optionally the forecast month (default 12 = Jan 2017)
+     */
+    public static void main(String[] args) {
+
+        // local variables
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int month = (args.length > 1) ? Integer.parseInt(args[1]) : 12;
+        ForecastEngine fEngine = null;
+        PayoutPrediction prediction = null;
+        int policies = 0;
+        long before = 0;
+        long predictBytes = 0;
+        long lookupBytes = 0;
+
+        if (args.length < 1 || !mx.isThreadAllocatedMemorySupported()) {
+            System.err.println("usage: PredictionAllocBench <claim csv> [month], on a JVM that counts thread allocation");
+            System.exit(2);
+        }
+
+        // load and summarize once, sequentially
+        fEngine = new ForecastEngine(new DataHandling(args[0], "").RetrieveClaimStore());
+        fEngine.setParallel(false);
+        fEngine.CalculatePolicySummaries();
+        policies = fEngine.getPayoutSummaries().size();
+
+        // warm up
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            fEngine.CalculatePredictions(new int[] { month });
+            fEngine.ClearPredictions(month);
+        }
+
+        // one month of predictions
+        before = mx.getThreadAllocatedBytes(thread);
+        fEngine.CalculatePredictions(new int[] { month });
+        predictBytes = mx.getThreadAllocatedBytes(thread) - before;
+
+        // month names, warmed up then measured
+        prediction = fEngine.getPredictions(month).get(0);
+        for (int i = 0; i < LOOKUPS; i++) {
+            prediction.getMonth();
+            prediction.getPrevMonth();
+        }
+        before = mx.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < LOOKUPS; i++) {
+            prediction.getMonth();
+            prediction.getPrevMonth();
+        }
+        lookupBytes = mx.getThreadAllocatedBytes(thread) - before;
+
+        System.out.println("policies: " + policies);
+        System.out.println("predictions: " + predictBytes + " bytes, "
+                + String.format("%.1f", (double) predictBytes / policies) + " bytes per policy");
+        System.out.println("month-name lookups: " + lookupBytes + " bytes for " + (2 * LOOKUPS) + " lookups");
+    }
+}
@@ -0,0 +1,95 @@
+package algorithms;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+
+/**
+ * Regression check for BatchPredictor.roundToCents: every value must round to
+ * exactly the same double (sign of zero included) as formatting it with
+ * DecimalFormat("#.##") and parsing it back, which is how payouts used to be rounded.
+ *
+ * Build the project first, then from the project folder:
+ * <pre>
+ *   javac -d build/bench -cp build/classes bench/algorithms/*.java
+ *   java -cp build/classes:build/bench algorithms.RoundToCentsCheck [samples]
+ * </pre>
+ * Exits with status 1 when any value differs.
+ *
+ * @author Nathan Minor
+ */
+public class RoundToCentsCheck {
+
+    // values known to be hard: exact and near half-cent ties, signed zeros, huge and tiny values
+    private static final double[] EDGES = {
+        0.0, -0.0, 0.005, -0.005, Math.nextUp(-0.005), Math.nextDown(0.005), Math.nextUp(0.005),
+        -0.001, 0.015, 0.025, 0.125, -0.125, 0.375, 1.005, 2.675, -2.675, 9.995, 99.995,
+        123456789.125, 4503599627370.495, 1e15, -1e15, 1e-300, -1e-300,
+        Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE
+    };
+
+    /**
+     * Executable entry point.
+     * @param args optional number of random values to check (default 3,000,000)
+     */
+    public static void main(String[] args) {
+
+        // local variables
+        int samples = (args.length > 0) ? Integer.parseInt(args[0]) : 3000000;
+        DecimalFormat df = new DecimalFormat("#.##");
+        Random random = new Random(1);
+        long mismatches = 0;
+        double value = 0.0;
+
+        for (double edge : EDGES) {
+            mismatches += check(df, edge);
+        }
+
+        // payout-like values, exact eighths and hundred-and-fifths, and a wide spread of magnitudes
+        for (int i = 0; i < samples; i++) {
+            switch (i % 5) {
+                case 0:
+                    value = random.nextDouble() * 1000;
+                    break;
+                case 1:
+                    value = (random.nextInt(2000000) - 1000000) / 1000.0;
+                    break;
+                case 2:
+                    value = random.nextInt(100000) / 8.0;
+                    break;
+                case 3:
+                    value = Math.scalb(random.nextDouble() - 0.5, random.nextInt(80) - 40);
+                    break;
+                default:
+                    value = (random.nextInt(20000000) - 10000000) / 200.0;
+            }
+
+            mismatches += check(df, value);
+        }
+
+        System.out.println((EDGES.length + samples) + " values checked, " + mismatches + " mismatches");
+
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the rounding of one value against the string round trip.
+     * @param df the "#.##" format
+     * @param value the value to round
+     * @return 1 when the two differ (and prints them), 0 otherwise.
+     */
+    private static int check(DecimalFormat df, double value) {
+
+        // local variables
+        double expected = Double.parseDouble(df.format(value));
+        double actual = BatchPredictor.roundToCents(value);
+
+        if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual)) {
+            System.out.println(value + ": expected " + expected + ", got " + actual);
+            return 1;
+        }
+
+        return 0;
+    }
+}
@@ -30,9 +30,10 @@ public class Main {
         String inFilePath = ""; // used for storing the file path to the original data file
         String outFilePath = ""; // used for storing the file path to the original data file
         DataHandling dh = null; // used to handle that data
-        List<ClaimLevel> csvData = null; // stores raw parsed data from csv
+        ClaimStore claims = null; // stores raw parsed data from csv, column by column
         ForecastEngine fEngine = null; // custom class object that does all the heavy lifting
         List<String> monthYears = new ArrayList<>();
+        int[] months = null; // the months to forecast, as indexes into monthYears
         
         monthYears.add("Jan16");
         monthYears.add("Feb16");
@@ -56,102 +57,105 @@ public class Main {
 //            // get the number of clusters to compute
 //            System.out.println("Enter the month to forecast (0 = Jan 2016,..., 12 = Jan 2017):");
 //            month = Integer.parseInt(keyboard.next());
-            
-            for (int month = 0; month < monthYears.size(); month++) {
-                
-                System.out.println();
-                System.out.println("Predictions for " + monthYears.get(month));
-            
-                // setup output file path
-                outFilePath = 
-                        inFilePath.substring(0, (inFilePath.lastIndexOf("/") + 1)) 
-                        + "Predictions" + monthYears.get(month) + ".csv";
-
-                // start the clock
-                start = System.currentTimeMillis();
 
-                // update console with progress
-                System.out.print("\t->retrieving data...");
+            // forecast every month in monthYears, 0 = Jan 2016,..., 12 = Jan 2017
+            months = new int[monthYears.size()];
+            for (int month = 0; month < months.length; month++) {
+                months[month] = month;
+            }
 
-                // creat data handler
-                dh = new DataHandling(inFilePath, outFilePath);
+            System.out.println();
+            System.out.println("Predictions for " + monthYears.get(0) + " thru " + monthYears.get(months.length - 1));
 
-                // retrieve data from csv file
+            // start the clock
+            start = System.currentTimeMillis();
 
-                csvData = dh.RetrieveData();
+            // update console with progress
+            System.out.print("\t->retrieving data...");
 
-                // only continue if there was data retieved
-                if (!csvData.isEmpty()) {
+            // creat data handler, caching parsed claims between runs
+            dh = new DataHandling(inFilePath, outFilePath);
+            dh.setSnapshotEnabled(true);
 
-                    // update console with progress
-                    System.out.print("data retrieved (time:" + (System.currentTimeMillis() - start) + " ms)\n");
+            // retrieve data from csv file, once for all months
+            claims = dh.RetrieveClaimStore();
 
-                    // reset the clock
-                    start = System.currentTimeMillis();
+            // only continue if there was data retieved
+            if (claims.size() > 0) {
+
+                // update console with progress
+                System.out.print("data retrieved (time:" + (System.currentTimeMillis() - start) + " ms)\n");
 
-                    // create a new forecasting object
-                    fEngine = new ForecastEngine(csvData);
+                // reset the clock
+                start = System.currentTimeMillis();
 
-                    // update console with progress
-                    System.out.print("\t->calculating summaries...");
+                // create a new forecasting object, spreading work across threads
+                fEngine = new ForecastEngine(claims);
+                fEngine.setParallel(true);
 
-                    // calculate monthly summaries for each policy
-                    success = fEngine.CalculatePolicySummaries();
+                // update console with progress
+                System.out.print("\t->calculating summaries...");
 
-                    // only continue if successful
-                    if (success) {
+                // calculate monthly summaries for each policy, once for all months
+                success = fEngine.CalculatePolicySummaries();
 
-                        // update console with progress
-                        System.out.print("summaries calculated \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
+                // only continue if successful
+                if (success) {
+
+                    // update console with progress
+                    System.out.print("summaries calculated \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
+
+                    // reset the clock
+//                    start = System.currentTimeMillis();
+//
+//                     update console with progress
+//                    System.out.print("\t->computing clusters...");
+//
+//                     compute clusters
+//                    success = fEngine.ComputeClusters(45, 0.1);
+//
+//                     only continue if successful
+                    if (success) {
+//
+//                         update console with progress
+//                        System.out.print("clusters computed \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
 
                         // reset the clock
-    //                    start = System.currentTimeMillis();
-    //
-    //                     update console with progress
-    //                    System.out.print("\t->computing clusters...");
-    //
-    //                     compute clusters
-    //                    success = fEngine.ComputeClusters(45, 0.1);
-    //
-    //                     only continue if successful
-                        if (success) {
-    //
-    //                         update console with progress
-    //                        System.out.print("clusters computed \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
+                        start = System.currentTimeMillis();
 
-                            // reset the clock
-                            start = System.currentTimeMillis();
+                        // update console with progress
+                        System.out.print("\t->calculating and saving predictions...");
 
-                            // update console with progress
-                            System.out.print("\t->calculating predictions...");
+                        // predict and save one month at a time, so only one month of predictions is held at once
+                        for (int month = 0; success && month < months.length; month++) {
 
-                            // calculate monthly predictions for each policy
-                            success = fEngine.CalculatePredictions(month);
+                            // calculate predictions for each policy, for this month
+                            success = fEngine.CalculatePredictions(new int[] { months[month] });
 
                             // only continue if successful
                             if (success) {
 
-                                // update console with progress
-                                System.out.print("predictions calculated \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
+                                // setup output file path
+                                outFilePath =
+                                        inFilePath.substring(0, (inFilePath.lastIndexOf("/") + 1))
+                                        + "Predictions" + monthYears.get(month) + ".csv";
 
-                                // reset the clock
-                                start = System.currentTimeMillis();
+                                // save predictions (and calculations), one file per month
+                                dh.setPredOutputFilePath(outFilePath);
+                                success = dh.SavePredictions(fEngine, months[month]);
 
-                                // update console with progress
-                                System.out.print("\t->saving predictions...");
-
-                                // save predictions (and calculations)
-                                success = dh.SavePredictions(fEngine);
+                                // the month is saved, let its predictions go
+                                fEngine.ClearPredictions(months[month]);
+                            }
+                        }
 
-                                // only continue if successful
-                                if (success) {
+                        // only continue if successful
+                        if (success) {
 
-                                    // update console with progress
-                                    System.out.print("output data saved \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
-                                }
-                            }
+                            // update console with progress
+                            System.out.print("predictions saved \t(time:" + (System.currentTimeMillis() - start) + " ms)\n");
                         }
-                    }           
+                    }
                 }
             }
         } catch (Exception ex) {
@@ -0,0 +1,175 @@
+package algorithms;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the payout of many policies for one forecast month at once, from the
+ * prediction inputs laid out column by column (one array per input, one entry per
+ * policy).
+ *
+ * The arithmetic is shared with ForecastEngine's per-policy predictions, so the
+ * estimates are exactly the same. The batch form splits it in two passes over
+ * primitive arrays: a branch-free pass for the raw estimates (the timing window
+ * is a select rather than a branch), then a pass that rounds them to cents, which
+ * branches and has slow paths for ties and huge values.
+ *
+ * @author Nathan Minor
+ */
+public final class BatchPredictor {
+
+    // number of policies handed to each task when running in parallel
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private BatchPredictor() {
+    }
+
+    /**
+     * Estimates the payout of every policy for a forecast month.
+     * @param t the month to make a forecast for, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     * @param avgT mean time between payouts, per policy (or per policy's cluster)
+     * @param stdT standard deviation of the time between payouts, per policy
+     * @param targetMean target mean monthly payout, per policy (or per policy's cluster)
+     * @param efm error from the target mean at month t, per policy
+     * @param prevT most recent payout month before t, per policy
+     * @param parallel true to spread the policies across the common fork/join pool
+     * @return The estimated payouts, rounded to cents, in policy order.
+     */
+    public static double[] predict(int t, double[] avgT, double[] stdT, double[] targetMean, double[] efm,
+            int[] prevT, boolean parallel) {
+
+        // local variables
+        double[] estimates = new double[avgT.length];
+        int blocks = (avgT.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        if (parallel) {
+            IntStream.range(0, blocks).parallel().forEach(b -> predict(t, avgT, stdT, targetMean, efm, prevT,
+                    estimates, b * BLOCK_SIZE, Math.min(avgT.length, (b + 1) * BLOCK_SIZE)));
+        } else {
+            predict(t, avgT, stdT, targetMean, efm, prevT, estimates, 0, avgT.length);
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Estimates the payout of a range of policies for a forecast month.
+     * @param t the month to make a forecast for
+     * @param avgT mean time between payouts, per policy
+     * @param stdT standard deviation of the time between payouts, per policy
+     * @param targetMean target mean monthly payout, per policy
+     * @param efm error from the target mean at month t, per policy
+     * @param prevT most recent payout month before t, per policy
+     * @param estimates receives the estimated payouts
+     * @param from first policy of the range
+     * @param to policy just past the range
+     */
+    private static void predict(int t, double[] avgT, double[] stdT, double[] targetMean, double[] efm,
+            int[] prevT, double[] estimates, int from, int to) {
+
+        // raw estimates, straight-line arithmetic
+        for (int i = from; i < to; i++) {
+            estimates[i] = rawEstimate(targetMean[i], timingProbability(t, prevT[i], avgT[i], stdT[i]), efm[i]);
+        }
+
+        // rounded to cents
+        for (int i = from; i < to; i++) {
+            estimates[i] = roundEstimate(estimates[i]);
+        }
+    }
+
+    /**
+     * Approximates the probability of a payout in month t from how far t falls from
+     * the expected next payout month, in standard deviations, within a 2 sigma window.
+     * @param t the month to make a forecast for
+     * @param prevT most recent payout month before t
+     * @param avgT mean time between payouts
+     * @param stdT standard deviation of the time between payouts
+     * @return The timing probability, 0 outside the window or when the timing never varies.
+     */
+    static double timingProbability(int t, int prevT, double avgT, double stdT) {
+
+        // calc the z score for the timing of this predicted month, meaningless (but
+        // harmless) when the timing never varies since it is not selected then
+        double timeZ = ((t - prevT) - avgT) / stdT;
+
+        // determine timing probability based on 2sigma window, as a select so the
+        // batch loop has no branches; a NaN z score falls inside the window, as it always has
+        return (stdT > 0 && !(Math.abs(timeZ) > (2 * stdT))) ? Math.abs(timeZ - (2 * stdT)) / (2 * stdT) : 0;
+    }
+
+    /**
+     * Estimates a payout from the target mean, scaled by the timing probability and
+     * corrected by the error from the mean.
+     * @param targetMean target mean monthly payout
+     * @param timeProb timing probability
+     * @param efm error from the target mean
+     * @return The estimated payout, rounded to cents, or 0 when it cannot be calculated.
+     */
+    static double estimate(double targetMean, double timeProb, double efm) {
+        return roundEstimate(rawEstimate(targetMean, timeProb, efm));
+    }
+
+    /**
+     * Estimates a payout before validation and rounding.
+     * @param targetMean target mean monthly payout
+     * @param timeProb timing probability
+     * @param efm error from the target mean
+     * @return The raw estimate, NaN when it cannot be calculated.
+     */
+    static double rawEstimate(double targetMean, double timeProb, double efm) {
+        return targetMean * timeProb * (1 - efm);
+    }
+
+    /**
+     * Validates a raw estimate and rounds it to cents.
+     * @param prediction the raw estimate
+     * @return The estimated payout, rounded to cents, or 0 when it cannot be calculated.
+     */
+    static double roundEstimate(double prediction) {
+
+        // validate prediction
+        if (Double.isNaN(prediction)) {
+            return roundToCents(0.0);
+        }
+
+        return roundToCents(prediction);
+    }
+
+    /**
+     * Rounds a payout to cents exactly like formatting it with DecimalFormat("#.##")
+     * and parsing it back, without the string round trip: half-even on the exact
+     * binary value, keeping the sign of negative zero.
+     * @param value the payout to round
+     * @return The payout rounded to two decimal places.
+     */
+    static double roundToCents(double value) {
+
+        // local variables
+        double cents = value * 100;
+        double fraction = 0.0;
+        long unscaled = 0;
+
+        // out of range for exact whole cents (including infinity), take the slow path
+        if (!(Math.abs(cents) < 0x1p52)) {
+            return Double.parseDouble(new DecimalFormat("#.##").format(value));
+        }
+
+        // the multiply can land on the wrong side of a half cent, so settle near-ties exactly
+        fraction = cents - Math.floor(cents);
+        if (Math.abs(fraction - 0.5) <= 2 * Math.ulp(cents)) {
+            unscaled = new BigDecimal(value).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+
+            // BigDecimal has no negative zero, but the string round trip gives "-0" for small negatives
+            return (unscaled == 0) ? Math.copySign(0.0, value) : unscaled / 100.0;
+        }
+
+        // whole cents divided by 100 give the closest double to the two-decimal string
+        return Math.rint(cents) / 100;
+    }
+}
@@ -0,0 +1,307 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Picks starting centroids for k-means from a set of points stored row-major
+ * (point i, dimension d at index i * dims + d).
+ *
+ * Both seeders spread the starting centroids out by favouring points far from the
+ * centroids picked so far, and both are fully determined by the seed, so a given
+ * seed always produces the same centroids.
+ *
+ * @author Nathan Minor
+ */
+public final class CentroidSeeder {
+
+    /** Default number of sampling rounds for k-means||. */
+    public static final int DEFAULT_ROUNDS = 5;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private CentroidSeeder() {
+    }
+
+    /**
+     * k-means++ seeding: the first centroid is a random point, and each further
+     * centroid is a point drawn with probability proportional to its squared distance
+     * from the nearest centroid picked so far. Duplicate points are never picked
+     * twice, so fewer than k centroids only come back when there are fewer than k
+     * distinct points.
+     * @param points the points, row-major
+     * @param dims the number of dimensions per point
+     * @param k the number of centroids wanted
+     * @param seed seed for the random draws
+     * @return The centroids, row-major.
+     */
+    public static double[] kMeansPlusPlus(double[] points, int dims, int k, long seed) {
+        return weightedPlusPlus(points, null, dims, k, new Random(seed));
+    }
+
+    /**
+     * k-means|| seeding (Bahmani et al.): a few rounds each sample many points at
+     * once, every point independently with probability proportional to its squared
+     * distance from the nearest candidate so far. The candidates are then weighted by
+     * how many points they are nearest to and reduced to k centroids with weighted
+     * k-means++.
+     *
+     * Each point's draw in each round depends only on the seed, the round and the
+     * point, so the candidates are the same no matter how the work is split across
+     * threads.
+     * @param points the points, row-major
+     * @param dims the number of dimensions per point
+     * @param k the number of centroids wanted
+     * @param seed seed for the random draws
+     * @param rounds the number of sampling rounds
+     * @param parallel true to spread the per-point work across the common fork/join pool
+     * @return The centroids, row-major.
+     */
+    public static double[] kMeansParallel(double[] points, int dims, int k, long seed, int rounds, boolean parallel) {
+
+        // local variables
+        int n = points.length / dims;
+        double oversampling = 2.0 * k;
+        double[] candidates = null;
+        double[] nearest = new double[n];
+        int[] closest = new int[n];
+        double[] weights = null;
+        int count = 0;
+        int added = 0;
+        double psi = 0.0;
+
+        if (n == 0 || k <= 0) {
+            return new double[0];
+        }
+
+        // start from one uniformly drawn point
+        candidates = new double[Math.max(16, k) * dims];
+        System.arraycopy(points, (int) (uniform(seed, -1, 0) * n) * dims, candidates, 0, dims);
+        count = 1;
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        updateNearest(points, dims, candidates, 0, count, nearest, closest, parallel);
+
+        for (int round = 0; round < rounds; round++) {
+
+            // total cost of the current candidates, summed in point order
+            psi = 0.0;
+            for (int i = 0; i < n; i++) {
+                psi += nearest[i];
+            }
+
+            // every point is already a candidate
+            if (psi == 0) {
+                break;
+            }
+
+            // sample each point independently, adding them in point order
+            added = 0;
+            for (int i = 0; i < n; i++) {
+                if (nearest[i] > 0 && uniform(seed, round, i) < oversampling * nearest[i] / psi) {
+                    if ((count + added + 1) * dims > candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    }
+
+                    System.arraycopy(points, i * dims, candidates, (count + added) * dims, dims);
+                    added++;
+                }
+            }
+
+            updateNearest(points, dims, candidates, count, count + added, nearest, closest, parallel);
+            count += added;
+        }
+
+        // weight each candidate by the number of points nearest to it
+        weights = new double[count];
+        for (int i = 0; i < n; i++) {
+            weights[closest[i]]++;
+        }
+
+        return weightedPlusPlus(Arrays.copyOf(candidates, count * dims), weights, dims, k, new Random(seed));
+    }
+
+    /**
+     * k-means++ over optionally weighted points: draws are proportional to weight
+     * times squared distance from the nearest centroid picked so far.
+     * @param points the points, row-major
+     * @param weights the weight of each point, or null for equal weights
+     * @param dims the number of dimensions per point
+     * @param k the number of centroids wanted
+     * @param r source of the random draws
+     * @return The centroids, row-major.
+     */
+    private static double[] weightedPlusPlus(double[] points, double[] weights, int dims, int k, Random r) {
+
+        // local variables
+        int n = points.length / dims;
+        double[] centroids = null;
+        double[] nearest = new double[n];
+        int count = 0;
+        int pick = 0;
+        double total = 0.0;
+        double target = 0.0;
+        double dist = 0.0;
+
+        if (n == 0 || k <= 0) {
+            return new double[0];
+        }
+
+        centroids = new double[k * dims];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+        // first centroid, drawn by weight alone
+        pick = draw(weights, n, r);
+
+        while (pick >= 0) {
+            System.arraycopy(points, pick * dims, centroids, count * dims, dims);
+            count++;
+
+            if (count == k) {
+                break;
+            }
+
+            // squared distance from each point to its nearest centroid
+            total = 0.0;
+            for (int i = 0; i < n; i++) {
+                dist = squaredDistance(points, i, centroids, count - 1, dims);
+
+                if (dist < nearest[i]) {
+                    nearest[i] = dist;
+                }
+
+                total += (weights == null ? 1.0 : weights[i]) * nearest[i];
+            }
+
+            // every point sits on a centroid already
+            if (total <= 0) {
+                break;
+            }
+
+            target = r.nextDouble() * total;
+            pick = pickByCost(weights, nearest, n, target);
+        }
+
+        return Arrays.copyOf(centroids, count * dims);
+    }
+
+    /**
+     * Draws a point by weight alone.
+     * @param weights the weight of each point, or null for equal weights
+     * @param n the number of points
+     * @param r source of the random draws
+     * @return The index of the point drawn.
+     */
+    private static int draw(double[] weights, int n, Random r) {
+
+        // local variables
+        double total = 0.0;
+
+        if (weights == null) {
+            return r.nextInt(n);
+        }
+
+        for (int i = 0; i < n; i++) {
+            total += weights[i];
+        }
+
+        return pickByCost(weights, null, n, r.nextDouble() * total);
+    }
+
+    /**
+     * Walks the running total of weight times cost until it passes the target.
+     * @param weights the weight of each point, or null for equal weights
+     * @param cost the cost of each point, or null for a cost of 1
+     * @param n the number of points
+     * @param target where in the running total to stop
+     * @return The index of the point picked, or -1 when no point has any weight.
+     */
+    private static int pickByCost(double[] weights, double[] cost, int n, double target) {
+
+        // local variables
+        double running = 0.0;
+        double w = 0.0;
+        int last = -1;
+
+        for (int i = 0; i < n; i++) {
+            w = (weights == null ? 1.0 : weights[i]) * (cost == null ? 1.0 : cost[i]);
+
+            if (w > 0) {
+                running += w;
+                last = i;
+
+                if (running > target) {
+                    return i;
+                }
+            }
+        }
+
+        // rounding can leave the target just past the end of the running total
+        return last;
+    }
+
+    /**
+     * Lowers each point's distance to its nearest candidate using a range of new
+     * candidates, remembering which candidate is nearest.
+     * @param points the points, row-major
+     * @param dims the number of dimensions per point
+     * @param candidates the candidates, row-major
+     * @param from first new candidate
+     * @param to candidate just past the new ones
+     * @param nearest squared distance from each point to its nearest candidate
+     * @param closest index of each point's nearest candidate
+     * @param parallel true to spread the points across the common fork/join pool
+     */
+    private static void updateNearest(double[] points, int dims, double[] candidates, int from, int to,
+            double[] nearest, int[] closest, boolean parallel) {
+
+        // local variables
+        IntStream range = IntStream.range(0, nearest.length);
+
+        (parallel ? range.parallel() : range).forEach(i -> {
+            for (int c = from; c < to; c++) {
+                double dist = squaredDistance(points, i, candidates, c, dims);
+
+                if (dist < nearest[i]) {
+                    nearest[i] = dist;
+                    closest[i] = c;
+                }
+            }
+        });
+    }
+
+    /**
+     * Measures the squared distance between a point and a centroid.
+     * @param points the points, row-major
+     * @param i index of the point
+     * @param centroids the centroids, row-major
+     * @param c index of the centroid
+     * @param dims the number of dimensions
+     * @return The squared Euclidean distance.
+     */
+    private static double squaredDistance(double[] points, int i, double[] centroids, int c, int dims) {
+        return Distances.squared(points, i, centroids, c, dims);
+    }
+
+    /**
+     * A uniform draw in [0, 1) that depends only on its inputs, so each point gets
+     * the same draw in a round no matter which thread handles it.
+     * @param seed the seed
+     * @param round the sampling round
+     * @param i index of the point
+     * @return The draw.
+     */
+    private static double uniform(long seed, int round, int i) {
+
+        // local variables
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) round << 32) ^ (i & 0xFFFFFFFFL) ^ 0x5DEECE66DL);
+
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
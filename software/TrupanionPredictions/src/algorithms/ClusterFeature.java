@@ -0,0 +1,58 @@
+package algorithms;
+
+/**
+ * The per-policy values that policies can be clustered on.
+ *
+ * @author Nathan Minor
+ */
+public enum ClusterFeature {
+    /** Average number of months between payouts. */
+    AVG_TIME_BETWEEN(0),
+    /** Mean monthly payout. */
+    MEAN_PAYOUT(1),
+    /** Total paid out over all months. */
+    TOTAL_PAID(2),
+    /** Number of months with a payout. */
+    PAYOUT_MONTHS(3),
+    /** Total amount claimed, paid or not. */
+    TOTAL_CLAIMED(4),
+    /** Number of claims filed, paid or not. */
+    CLAIM_COUNT(5),
+    /** Monthly premium, from the policy level data. */
+    MONTHLY_PREMIUM(6);
+
+    // internal class variables
+    private final int _code; // stores the code saved in cluster model files
+
+    /**
+     * Constructs a constant.
+     * @param code the code saved in cluster model files
+     */
+    ClusterFeature(int code) {
+        this._code = code;
+    }
+
+    /**
+     * "Get" method for retrieving the code saved in cluster model files. Codes
+     * never change, unlike ordinals, so new constants must take new codes.
+     * @return The code.
+     */
+    public int getCode() {
+        return this._code;
+    }
+
+    /**
+     * Looks up a constant by the code saved in a cluster model file.
+     * @param code the saved code
+     * @return The constant, or null when no constant has the code.
+     */
+    public static ClusterFeature fromCode(int code) {
+        for (ClusterFeature value : values()) {
+            if (value._code == code) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+}
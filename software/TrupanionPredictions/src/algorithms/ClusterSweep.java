@@ -0,0 +1,291 @@
+package algorithms;
+
+import data.ClusterModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The outcome of clustering the same points for a range of cluster counts: for
+ * each k, the inertia (for elbow plots), a sampled silhouette score, the number of
+ * iterations and the time taken, plus the model of the best k.
+ *
+ * The best k is the one with the highest silhouette, the lowest k winning ties, so
+ * the pick does not depend on the order in which the ks finish.
+ *
+ * @author Nathan Minor
+ */
+public final class ClusterSweep {
+
+    /** Default number of points sampled for the silhouette score. */
+    public static final int DEFAULT_SILHOUETTE_SAMPLE = 2000;
+
+    // internal class variables
+    private final int _minK;            // stores the smallest k tried
+    private final int[] _clusters;      // stores the number of clusters actually formed, per k
+    private final double[] _inertia;    // stores the sum of squared distances to the closest centroid, per k
+    private final double[] _silhouette; // stores the sampled silhouette score, per k
+    private final int[] _iterations;    // stores the number of k-means iterations, per k
+    private final long[] _nanos;        // stores the time taken, per k
+    private int _bestK;                 // stores the best k so far, 0 until a k is recorded
+    private double[] _bestCentroids;    // stores the centroids of the best k so far
+    private int[] _bestAssignments;     // stores the assignments of the best k so far
+    private ClusterModel _bestModel;    // stores the model of the best k, once the sweep is done
+    private long _elapsedNanos;         // stores the wall-clock time of the whole sweep
+
+    /**
+     * Constructs an empty sweep over k = minK to maxK.
+     * @param minK the smallest k tried
+     * @param maxK the largest k tried
+     */
+    ClusterSweep(int minK, int maxK) {
+
+        // local variables
+        int count = Math.max(0, maxK - minK + 1);
+
+        this._minK = minK;
+        this._clusters = new int[count];
+        this._inertia = new double[count];
+        this._silhouette = new double[count];
+        this._iterations = new int[count];
+        this._nanos = new long[count];
+        this._bestK = 0;
+        this._bestCentroids = null;
+        this._bestAssignments = null;
+        this._bestModel = null;
+        this._elapsedNanos = 0;
+    }
+
+    /**
+     * Records the outcome of one k, keeping its centroids and assignments when it is
+     * the best so far. Safe to call from several threads at once; everything costly
+     * (such as the inertia) is worked out by the caller beforehand, so the lock is
+     * only held for the bookkeeping.
+     * @param k the k tried
+     * @param clusters the number of clusters actually formed
+     * @param inertia the sum of squared distances to the closest centroid
+     * @param iterations the number of k-means iterations
+     * @param centroids the converged centroids, row-major
+     * @param assignments the cluster of each point
+     * @param silhouette the sampled silhouette score
+     * @param nanos the time taken
+     */
+    synchronized void record(int k, int clusters, double inertia, int iterations, double[] centroids, int[] assignments,
+            double silhouette, long nanos) {
+
+        // local variables
+        int i = k - this._minK;
+        double best = (this._bestK == 0) ? Double.NaN : this._silhouette[this._bestK - this._minK];
+
+        this._clusters[i] = clusters;
+        this._inertia[i] = inertia;
+        this._silhouette[i] = silhouette;
+        this._iterations[i] = iterations;
+        this._nanos[i] = nanos;
+
+        // a missing score never beats a real one
+        if (this._bestK == 0
+                || (!Double.isNaN(silhouette) && (Double.isNaN(best) || silhouette > best
+                        || (silhouette == best && k < this._bestK)))
+                || (Double.isNaN(silhouette) && Double.isNaN(best) && k < this._bestK)) {
+            this._bestK = k;
+            this._bestCentroids = centroids;
+            this._bestAssignments = assignments;
+        }
+    }
+
+    /**
+     * Marks the sweep as done.
+     * @param model the model of the best k
+     * @param elapsedNanos the wall-clock time of the whole sweep
+     */
+    void finish(ClusterModel model, long elapsedNanos) {
+        this._bestModel = model;
+        this._elapsedNanos = elapsedNanos;
+        this._bestCentroids = null;
+        this._bestAssignments = null;
+    }
+
+    /**
+     * "Get" method for retrieving the centroids of the best k, before the sweep is done.
+     * @return The centroids, row-major.
+     */
+    double[] getBestCentroids() {
+        return this._bestCentroids;
+    }
+
+    /**
+     * "Get" method for retrieving the assignments of the best k, before the sweep is done.
+     * @return The cluster of each point.
+     */
+    int[] getBestAssignments() {
+        return this._bestAssignments;
+    }
+
+    /**
+     * "Get" method for retrieving the number of ks tried.
+     * @return The number of ks.
+     */
+    public int size() {
+        return this._inertia.length;
+    }
+
+    /**
+     * "Get" method for retrieving a k tried.
+     * @param i position in the sweep (0 to size() - 1)
+     * @return The k.
+     */
+    public int getK(int i) {
+        return this._minK + i;
+    }
+
+    /**
+     * "Get" method for retrieving the number of clusters actually formed for a k,
+     * which is lower than k only when there are fewer distinct points than k.
+     * @param i position in the sweep
+     * @return The number of clusters.
+     */
+    public int getClusters(int i) {
+        return this._clusters[i];
+    }
+
+    /**
+     * "Get" method for retrieving the inertia for a k.
+     * @param i position in the sweep
+     * @return The sum of squared distances from each point to its closest centroid.
+     */
+    public double getInertia(int i) {
+        return this._inertia[i];
+    }
+
+    /**
+     * "Get" method for retrieving the sampled silhouette score for a k.
+     * @param i position in the sweep
+     * @return The score (-1 to 1, higher is better), or NaN when fewer than two clusters formed.
+     */
+    public double getSilhouette(int i) {
+        return this._silhouette[i];
+    }
+
+    /**
+     * "Get" method for retrieving the number of k-means iterations for a k.
+     * @param i position in the sweep
+     * @return The number of iterations.
+     */
+    public int getIterations(int i) {
+        return this._iterations[i];
+    }
+
+    /**
+     * "Get" method for retrieving the time taken for a k, seeding through scoring.
+     * @param i position in the sweep
+     * @return The time in milliseconds.
+     */
+    public double getMillis(int i) {
+        return this._nanos[i] / 1e6;
+    }
+
+    /**
+     * "Get" method for retrieving the wall-clock time of the whole sweep.
+     * @return The time in milliseconds.
+     */
+    public double getElapsedMillis() {
+        return this._elapsedNanos / 1e6;
+    }
+
+    /**
+     * "Get" method for retrieving the best k.
+     * @return The k with the highest silhouette score.
+     */
+    public int getBestK() {
+        return this._bestK;
+    }
+
+    /**
+     * "Get" method for retrieving the model of the best k.
+     * @return The cluster model.
+     */
+    public ClusterModel getBestModel() {
+        return this._bestModel;
+    }
+
+    /**
+     * Scores a clustering with the silhouette over a random sample of the points:
+     * for each sampled point, a is its mean distance to the other sampled points in
+     * its cluster and b its lowest mean distance to the sampled points of another
+     * cluster, and its score is (b - a) / max(a, b). Points alone in their cluster
+     * score 0. The same seed draws the same sample, so scores for different ks are
+     * comparable.
+     * @param points the points, row-major
+     * @param dims the number of dimensions per point
+     * @param assignments the cluster of each point
+     * @param k the number of clusters
+     * @param sampleSize the number of points to sample
+     * @param seed seed for drawing the sample
+     * @return The mean score over the sample, or NaN when fewer than two clusters formed.
+     */
+    public static double sampledSilhouette(double[] points, int dims, int[] assignments, int k, int sampleSize, long seed) {
+
+        // local variables
+        int n = assignments.length;
+        int m = Math.min(sampleSize, n);
+        int[] sample = new int[m];
+        Map<Integer, Integer> moved = new HashMap<>(); // slots of the virtual shuffle that no longer hold their own index
+        double[] sums = new double[k];
+        int[] counts = new int[k];
+        Random r = new Random(seed);
+        double total = 0.0;
+        double a = 0.0;
+        double b = 0.0;
+        double dist = 0.0;
+        int own = 0;
+        int pick = 0;
+
+        if (k < 2 || m == 0) {
+            return Double.NaN;
+        }
+
+        // draw m distinct points with a partial shuffle of the indexes 0 to n - 1, keeping
+        // only the slots the swaps have touched, so the draw costs O(m) rather than O(n)
+        for (int i = 0; i < m; i++) {
+            pick = i + r.nextInt(n - i);
+            sample[i] = moved.getOrDefault(pick, pick);
+            moved.put(pick, moved.getOrDefault(i, i));
+        }
+
+        // sampled points per cluster
+        for (int i = 0; i < m; i++) {
+            counts[assignments[sample[i]]]++;
+        }
+
+        for (int i = 0; i < m; i++) {
+            own = assignments[sample[i]];
+
+            if (counts[own] < 2) {
+                continue;
+            }
+
+            // summed distance to the sampled points of each cluster
+            Arrays.fill(sums, 0.0);
+            for (int j = 0; j < m; j++) {
+                dist = Distances.squared(points, sample[i], points, sample[j], dims);
+                sums[assignments[sample[j]]] += Math.sqrt(dist);
+            }
+
+            a = sums[own] / (counts[own] - 1);
+            b = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                if (c != own && counts[c] > 0) {
+                    b = Math.min(b, sums[c] / counts[c]);
+                }
+            }
+
+            if (b != Double.POSITIVE_INFINITY && Math.max(a, b) > 0) {
+                total += (b - a) / Math.max(a, b);
+            }
+        }
+
+        return total / m;
+    }
+}
@@ -0,0 +1,73 @@
+package algorithms;
+
+/**
+ * The squared Euclidean distance kernel shared by the clustering code, over rows of
+ * flat row-major arrays (row r, dimension d at index r * dims + d).
+ *
+ * A plain scalar kernel, standing in for jdk.incubator.vector (not available at
+ * source level 1.8): the loop is unrolled by hand to sum four dimensions at a time
+ * into separate running sums, one per lane, so consecutive additions do not wait
+ * on each other, and the lanes are added together at the end. Fewer than four
+ * dimensions (such as the default two features) only take the in-order loop.
+ *
+ * @author Nathan Minor
+ */
+final class Distances {
+
+    // number of dimensions summed at a time
+    private static final int LANES = 4;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private Distances() {
+    }
+
+    /**
+     * Measures the squared distance between two rows.
+     * @param a the first array, row-major
+     * @param i index of the row in the first array
+     * @param b the second array, row-major
+     * @param j index of the row in the second array
+     * @param dims the number of dimensions per row
+     * @return The squared Euclidean distance.
+     */
+    static double squared(double[] a, int i, double[] b, int j, int dims) {
+
+        // local variables
+        int ai = i * dims;
+        int bj = j * dims;
+        int lanes = dims - dims % LANES;
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        double sum = 0.0;
+        double diff = 0.0;
+
+        // four dimensions at a time, one running sum per lane
+        for (int d = 0; d < lanes; d += LANES) {
+            double d0 = a[ai + d] - b[bj + d];
+            double d1 = a[ai + d + 1] - b[bj + d + 1];
+            double d2 = a[ai + d + 2] - b[bj + d + 2];
+            double d3 = a[ai + d + 3] - b[bj + d + 3];
+
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+
+        if (lanes > 0) {
+            sum = (s0 + s1) + (s2 + s3);
+        }
+
+        // the dimensions left over
+        for (int d = lanes; d < dims; d++) {
+            diff = a[ai + d] - b[bj + d];
+            sum += diff * diff;
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,215 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * The clustering features of every policy as a dense row-major matrix (policy i,
+ * feature d at index i * dims + d), after filling in missing values and rescaling
+ * each feature.
+ *
+ * Each feature keeps the shift and scale it was rescaled with, so coordinates in
+ * the rescaled space (such as centroids) can be mapped back to the feature's units.
+ *
+ * @author Nathan Minor
+ */
+final class FeatureMatrix {
+
+    // internal class variables
+    private final double[] _values; // stores the rescaled features, row-major
+    private final int _dims;        // stores the number of features per policy
+    private final double[] _shift;  // stores the value subtracted from each feature
+    private final double[] _scale;  // stores the value each shifted feature is divided by
+
+    /**
+     * Constructs a matrix from raw feature values, rescaling them in place. Missing
+     * (NaN) values are first replaced by the mean of the feature's other values.
+     * @param values the raw features, row-major
+     * @param dims the number of features per policy
+     * @param scaling how to rescale each feature
+     */
+    FeatureMatrix(double[] values, int dims, FeatureScaling[] scaling) {
+
+        // local variables
+        int n = values.length / dims;
+
+        this._values = values;
+        this._dims = dims;
+        this._shift = new double[dims];
+        this._scale = new double[dims];
+
+        for (int d = 0; d < dims; d++) {
+            this.fillMissing(d, n);
+            this.rescale(d, n, scaling[d]);
+        }
+    }
+
+    /**
+     * Constructs a matrix from raw feature values, rescaling them in place with a
+     * shift and scale worked out earlier (e.g. by the run that built a saved model),
+     * so the values land in the same space as that run's. Missing (NaN) values are
+     * first replaced by the mean of the feature's other values.
+     * @param values the raw features, row-major
+     * @param dims the number of features per policy
+     * @param shift the value to subtract from each feature
+     * @param scale the value to divide each shifted feature by
+     */
+    FeatureMatrix(double[] values, int dims, double[] shift, double[] scale) {
+
+        // local variables
+        int n = values.length / dims;
+
+        this._values = values;
+        this._dims = dims;
+        this._shift = Arrays.copyOf(shift, dims);
+        this._scale = Arrays.copyOf(scale, dims);
+
+        for (int d = 0; d < dims; d++) {
+            this.fillMissing(d, n);
+            this.apply(d, n);
+        }
+    }
+
+    /**
+     * "Get" method for retrieving the rescaled features.
+     * @return The features, row-major.
+     */
+    double[] getValues() {
+        return this._values;
+    }
+
+    /**
+     * "Get" method for retrieving the number of features per policy.
+     * @return The number of features.
+     */
+    int getDims() {
+        return this._dims;
+    }
+
+    /**
+     * "Get" method for retrieving the value subtracted from each feature.
+     * @return A copy of the shifts.
+     */
+    double[] getShift() {
+        return Arrays.copyOf(this._shift, this._dims);
+    }
+
+    /**
+     * "Get" method for retrieving the value each shifted feature is divided by.
+     * @return A copy of the scales.
+     */
+    double[] getScale() {
+        return Arrays.copyOf(this._scale, this._dims);
+    }
+
+    /**
+     * Maps a coordinate in the rescaled space back to the feature's units.
+     * @param d index of the feature
+     * @param value the rescaled coordinate
+     * @return The coordinate in the feature's units.
+     */
+    double unscale(int d, double value) {
+        return value * this._scale[d] + this._shift[d];
+    }
+
+    /**
+     * Replaces missing values of a feature by the mean of its other values.
+     * @param d index of the feature
+     * @param n the number of policies
+     */
+    private void fillMissing(int d, int n) {
+
+        // local variables
+        double sum = 0.0;
+        int count = 0;
+        double mean = 0.0;
+
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(this._values[i * this._dims + d])) {
+                sum += this._values[i * this._dims + d];
+                count++;
+            }
+        }
+
+        // nothing is missing
+        if (count == n) {
+            return;
+        }
+
+        mean = (count == 0) ? 0.0 : sum / count;
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(this._values[i * this._dims + d])) {
+                this._values[i * this._dims + d] = mean;
+            }
+        }
+    }
+
+    /**
+     * Rescales a feature in place and records its shift and scale.
+     * @param d index of the feature
+     * @param n the number of policies
+     * @param scaling how to rescale the feature
+     */
+    private void rescale(int d, int n, FeatureScaling scaling) {
+
+        // local variables
+        double shift = 0.0;
+        double scale = 1.0;
+        double sum = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double value = 0.0;
+
+        if (scaling == FeatureScaling.STANDARD && n > 0) {
+            for (int i = 0; i < n; i++) {
+                sum += this._values[i * this._dims + d];
+            }
+            shift = sum / n;
+
+            sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                value = this._values[i * this._dims + d] - shift;
+                sum += value * value;
+            }
+            scale = Math.sqrt(sum / n);
+
+        } else if (scaling == FeatureScaling.MIN_MAX && n > 0) {
+            for (int i = 0; i < n; i++) {
+                min = Math.min(min, this._values[i * this._dims + d]);
+                max = Math.max(max, this._values[i * this._dims + d]);
+            }
+            shift = min;
+            scale = max - min;
+        }
+
+        // a constant feature carries no information, just center it
+        if (scale == 0.0) {
+            scale = 1.0;
+        }
+
+        this._shift[d] = shift;
+        this._scale[d] = scale;
+
+        this.apply(d, n);
+    }
+
+    /**
+     * Rescales a feature in place with its recorded shift and scale.
+     * @param d index of the feature
+     * @param n the number of policies
+     */
+    private void apply(int d, int n) {
+
+        // local variables
+        double shift = this._shift[d];
+        double scale = this._scale[d];
+
+        // raw values are left exactly as they are
+        if (shift == 0.0 && scale == 1.0) {
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            this._values[i * this._dims + d] = (this._values[i * this._dims + d] - shift) / scale;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package algorithms;
+
+/**
+ * How a clustering feature is rescaled before clustering, so features measured in
+ * very different units (months, dollars, counts) can carry comparable weight.
+ *
+ * @author Nathan Minor
+ */
+public enum FeatureScaling {
+    /** Raw values. */
+    NONE(0),
+    /** Shifted to mean 0 and scaled to standard deviation 1 (z-scores). */
+    STANDARD(1),
+    /** Shifted and scaled to run from 0 to 1. */
+    MIN_MAX(2);
+
+    // internal class variables
+    private final int _code; // stores the code saved in cluster model files
+
+    /**
+     * Constructs a constant.
+     * @param code the code saved in cluster model files
+     */
+    FeatureScaling(int code) {
+        this._code = code;
+    }
+
+    /**
+     * "Get" method for retrieving the code saved in cluster model files. Codes
+     * never change, unlike ordinals, so new constants must take new codes.
+     * @return The code.
+     */
+    public int getCode() {
+        return this._code;
+    }
+
+    /**
+     * Looks up a constant by the code saved in a cluster model file.
+     * @param code the saved code
+     * @return The constant, or null when no constant has the code.
+     */
+    public static FeatureScaling fromCode(int code) {
+        for (FeatureScaling value : values()) {
+            if (value._code == code) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+}
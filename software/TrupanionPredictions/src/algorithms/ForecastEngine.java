@@ -7,13 +7,16 @@ package algorithms;
 
 import data.*;
 
-import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 /**
  * Encapsulates the main algorithm functionality for calculating payout predictions.
@@ -21,29 +24,111 @@ import java.util.Random;
  */
 public class ForecastEngine {
     
+    // claim partitions per worker thread when summarizing in parallel
+    private static final int PARTS_PER_WORKER = 4;
+    
+    // features policies are clustered on unless set otherwise
+    private static final ClusterFeature[] DEFAULT_FEATURES = { ClusterFeature.AVG_TIME_BETWEEN, ClusterFeature.MEAN_PAYOUT };
+    
+    // policy count from which parallel runs seed clusters with k-means|| instead of k-means++
+    private static final int SEED_PARALLEL_MIN_POLICIES = 100000;
+    
     // private local variables
-    private List<ClaimLevel> _rawData;
-    private List<MonthlySummary> _monthlySummaries;
+    private ClaimStore _rawData; // raw claim data, stored column by column
+    private ClaimAggregator _aggregate; // streamed per-policy monthly payouts, used in place of raw data when set
+    private List<MonthlySummary> _monthlySummaries; // only populated when summarizing from raw data sequentially
     private List<PayoutSummary> _payoutSummaries;
-    private List<PayoutPrediction> _predictions;
+    private Map<Integer, List<PayoutPrediction>> _monthPredictions; // predictions per forecast month, in the order calculated
+    private boolean _parallel; // spread work across the common fork/join pool
+    private ClusterModel _clusterModel; // centroids and assignments of the last clustering, null until clustered
+    private ClusterFeature[] _features; // per-policy values clustered on, in feature matrix order
+    private FeatureScaling[] _scaling; // how each feature is rescaled before clustering
+    private PolicyStore _policies; // policy level data, only needed to cluster on premiums
     
     /**
      * Constucts a new instance of the main algorithm class.
      * @param csvData raw data from CSV file stored in an array list of row-vector objects
      */
     public ForecastEngine(List<ClaimLevel> csvData) {
-        this._rawData = csvData;
+        this(ClaimStore.fromClaims(csvData));
+    }
+    
+    /**
+     * Constucts a new instance of the main algorithm class.
+     * @param claims raw data from CSV file stored column by column
+     */
+    public ForecastEngine(ClaimStore claims) {
+        this._rawData = claims;
+        this._aggregate = null;
         this._monthlySummaries = new ArrayList<>();
         this._payoutSummaries = new ArrayList<>();
-        this._predictions = new ArrayList<>();
+        this._monthPredictions = new LinkedHashMap<>();
+        this._parallel = false;
+        this._clusterModel = null;
+        this._features = DEFAULT_FEATURES;
+        this._scaling = new FeatureScaling[] { FeatureScaling.NONE, FeatureScaling.NONE };
+        this._policies = null;
     }
     
     /**
-     * "Get" method used for retrieving the list of predictions.
+     * Constucts a new instance of the main algorithm class from claims that were already
+     * aggregated by policy and month while streaming them in.
+     * @param aggregate per-policy, per-month payout accumulators
+     */
+    public ForecastEngine(ClaimAggregator aggregate) {
+        this._rawData = new ClaimStore();
+        this._aggregate = aggregate;
+        this._monthlySummaries = new ArrayList<>();
+        this._payoutSummaries = new ArrayList<>();
+        this._monthPredictions = new LinkedHashMap<>();
+        this._parallel = false;
+        this._clusterModel = null;
+        this._features = DEFAULT_FEATURES;
+        this._scaling = new FeatureScaling[] { FeatureScaling.NONE, FeatureScaling.NONE };
+        this._policies = null;
+    }
+    
+    /**
+     * "Get" method for determining if work is spread across threads.
+     * @return Whether or not the engine runs in parallel.
+     */
+    public boolean isParallel() {
+        return this._parallel;
+    }
+    
+    /**
+     * "Set" method for spreading work across the common fork/join pool. Results
+     * are the same either way.
+     * @param parallel true to run in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this._parallel = parallel;
+    }
+    
+    /**
+     * "Get" method used for retrieving the list of predictions: every month held,
+     * in the order the months were calculated.
      * @return list of payout predictions as row-vector objects
      */
     public List<PayoutPrediction> getPredictions(){
-        return this._predictions;
+        
+        // local variables
+        List<PayoutPrediction> predictions = new ArrayList<>();
+        
+        for (List<PayoutPrediction> month : this._monthPredictions.values()) {
+            predictions.addAll(month);
+        }
+        
+        return predictions;
+    }
+    
+    /**
+     * "Get" method used for retrieving the predictions for one forecast month.
+     * @param month the forecast month, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     * @return list of payout predictions as row-vector objects, empty when the month was not forecast
+     */
+    public List<PayoutPrediction> getPredictions(int month){
+        return this._monthPredictions.getOrDefault(month, new ArrayList<>());
     }
     
     /**
@@ -54,6 +139,61 @@ public class ForecastEngine {
         return this._payoutSummaries;
     }
     
+    /**
+     * "Get" method for retrieving the centroids and per-policy assignments of the last
+     * clustering, for saving and warm-starting later runs.
+     * @return The cluster model, or null when the payout summaries have not been clustered.
+     */
+    public ClusterModel getClusterModel(){
+        return this._clusterModel;
+    }
+    
+    /**
+     * "Get" method for retrieving the per-policy values clustered on.
+     * @return The clustering features, in feature matrix order.
+     */
+    public ClusterFeature[] getClusterFeatures(){
+        return Arrays.copyOf(this._features, this._features.length);
+    }
+    
+    /**
+     * "Set" method for the per-policy values to cluster on, each rescaled its own way.
+     * Policies are clustered on average time between payouts and mean payout, both
+     * unscaled, unless set otherwise.
+     * @param features the clustering features, in feature matrix order
+     * @param scaling how to rescale each feature before clustering
+     */
+    public void setClusterFeatures(ClusterFeature[] features, FeatureScaling[] scaling){
+        if (features.length == 0 || features.length != scaling.length) {
+            throw new IllegalArgumentException("Need one scaling per clustering feature, and at least one feature");
+        }
+        
+        this._features = Arrays.copyOf(features, features.length);
+        this._scaling = Arrays.copyOf(scaling, scaling.length);
+    }
+    
+    /**
+     * "Set" method for the per-policy values to cluster on, all rescaled the same way.
+     * @param scaling how to rescale every feature before clustering
+     * @param features the clustering features, in feature matrix order
+     */
+    public void setClusterFeatures(FeatureScaling scaling, ClusterFeature... features){
+        
+        // local variables
+        FeatureScaling[] all = new FeatureScaling[features.length];
+        
+        Arrays.fill(all, scaling);
+        this.setClusterFeatures(features, all);
+    }
+    
+    /**
+     * "Set" method for the policy level data, needed to cluster on monthly premiums.
+     * @param policies the policy level data, from DataHandling.RetrievePolicyStore
+     */
+    public void setPolicyStore(PolicyStore policies){
+        this._policies = policies;
+    }
+    
     /**
      * Makes the calculations to populate aggregate summary data for use in
      * forecasting predictions.
@@ -64,29 +204,42 @@ public class ForecastEngine {
         // local variable definitions
         boolean success = true;
         int cMonth = 0;
+        int month = 0;
         int monthlyCount = 0;
+        int claim = 0;
+        int[] order = null;
         long cPolicyId = 0;
         double monthlySum = 0.0;
         double overallSum = 0.0;
-        Calendar cal = Calendar.getInstance();
         PayoutSummary tmp = null;
         List<Double> tmpData = new ArrayList<>();
         List<Integer> tmpTimeline = new ArrayList<>();
         
+        // summaries come straight from the accumulators when claims were streamed in
+        if (this._aggregate != null) {
+            return this.SummarizeAggregate();
+        }
+        
+        // policies are independent of each other, so split them across threads
+        if (this._parallel) {
+            return this.SummarizeParallel();
+        }
+        
         // use try-catch block for error trapping purposes
         try {
             
-            // first, sort the CSV data by policyId, then by date
-            Collections.sort(this._rawData);
+            // first, order the CSV data by policyId, then by date (grouped by policy, no global sort)
+            order = this._rawData.policyOrder();
 
             // walk thru csv data and populate summaries
-            for (ClaimLevel tmpRow : this._rawData) {
+            for (int row = 0; row < order.length; row++) {
+                claim = order[row];
 
-                // setup a calendar to parse the month number out of the claim dates
-                cal.setTime(tmpRow.getClaimDate());
+                // parse the month number out of the claim date
+                month = EpochDays.month(this._rawData.getEpochDay(claim));
 
                 // check to see if a new month has been encountered
-                if (cMonth < cal.get(Calendar.MONTH)) { 
+                if (cMonth < month) { 
 
                     // add info to monthly summaries list before resetting
                     this._monthlySummaries.add(
@@ -97,13 +250,13 @@ public class ForecastEngine {
                                     monthlyCount));
 
                     // reset monthly counters and sum when a new month passes
-                    cMonth = (int) cal.get(Calendar.MONTH);
+                    cMonth = month;
                     monthlyCount = 0;
                     monthlySum = 0;
                 }
 
                 // check to see if a new policyId has been encountered
-                if (cPolicyId < tmpRow.getPolicyId()) {
+                if (cPolicyId < this._rawData.getPolicyId(claim)) {
 
                     // dont' forget to add info to monthly summaries list before resetting
                     // but only do so if this isn't the first iteration
@@ -118,21 +271,21 @@ public class ForecastEngine {
                     }
                     
                     // only reset the current policyId when a new policy Id is encountered
-                    cPolicyId = tmpRow.getPolicyId();
+                    cPolicyId = this._rawData.getPolicyId(claim);
 
                     // but also reset monthly counters and sum when a new policyId is encountered
-                    cMonth = (int) cal.get(Calendar.MONTH);
+                    cMonth = month;
                     monthlyCount = 0;
                     monthlySum = 0;
 
                 }
 
                 // check to see if this claim was ever paid out
-                if (tmpRow.getPaidAmount() > 0) {
+                if (this._rawData.getPaidAmount(claim) > 0) {
                     
                     // increase counter and add to sum if so
                     monthlyCount++;
-                    monthlySum += tmpRow.getPaidAmount();
+                    monthlySum += this._rawData.getPaidAmount(claim);
                 }
             }
             
@@ -186,39 +339,322 @@ public class ForecastEngine {
     }
     
     /**
-     * Method used to calculate the intial values for the centroids on k clusters.
-     * Starting with randomly selected indices.
+     * Builds the payout summaries from raw data, split across threads by policy.
+     * 
+     * Claims are partitioned by policyId hash, and each partition is ordered and
+     * bucketed by month on its own, exactly as the sequential walk would. The
+     * partitions' policies are then merged back into policyId order, and the payout
+     * summaries are built into their final positions, so the results (and their
+     * order) are the same as the sequential walk.
+     * @return success flag used for error trapping
+     */
+    private boolean SummarizeParallel() {
+        
+        // local variable definitions
+        boolean success = true;
+        int parts = Math.max(1, ForkJoinPool.getCommonPoolParallelism() * PARTS_PER_WORKER);
+        int total = 0;
+        final int[] part;
+        final int[] index;
+        final PolicyMonths[] months;
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // bucket each partition independently
+            months = Arrays.stream(this._rawData.partitionByPolicy(parts))
+                    .parallel()
+                    .map(PolicyMonths::build)
+                    .toArray(PolicyMonths[]::new);
+            
+            for (PolicyMonths m : months) {
+                total += m.size();
+            }
+            
+            // each partition is already in policyId order, merge them into one order
+            part = new int[total];
+            index = new int[total];
+            this.MergePartitions(months, part, index);
+            
+            this.AddSummaries(
+                    (total == 0) ? 0 : this.ClosedPolicies(total, months[part[total - 1]].getBucketCount(index[total - 1])),
+                    r -> this.SummarizeBuckets(
+                            months[part[r]], 
+                            index[r], 
+                            months[part[r + 1]].getFirstMonth(index[r + 1])));
+            
+        // catch ANY exceptions here:  
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return success flag
+        return success;
+    }
+    
+    /**
+     * Merges partitions that are each in policyId order into one policyId order, with
+     * a min-heap of the partitions keyed by the policyId at their head, so each
+     * policy costs O(log partitions).
+     * @param months the partitions
+     * @param part receives the partition of each policy, in merged order
+     * @param index receives the index of each policy within its partition, in merged order
+     */
+    private void MergePartitions(PolicyMonths[] months, int[] part, int[] index) {
+        
+        // local variables
+        int[] heads = new int[months.length]; // next policy of each partition
+        int[] heap = new int[months.length]; // partitions with policies left, smallest head first
+        int size = 0;
+        int p = 0;
+        
+        // start with every partition that has policies
+        for (int i = 0; i < months.length; i++) {
+            if (months[i].size() > 0) {
+                heap[size++] = i;
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            this.SiftDown(months, heads, heap, size, i);
+        }
+        
+        for (int r = 0; r < part.length; r++) {
+            p = heap[0];
+            part[r] = p;
+            index[r] = heads[p]++;
+            
+            // drop the partition once it runs out, otherwise let its new head sink into place
+            if (heads[p] == months[p].size()) {
+                heap[0] = heap[--size];
+            }
+            this.SiftDown(months, heads, heap, size, 0);
+        }
+    }
+    
+    /**
+     * Moves a partition down the merge heap until its head policyId is no larger than
+     * those of its children. PolicyIds never repeat across partitions, so there are no ties.
+     * @param months the partitions
+     * @param heads next policy of each partition
+     * @param heap partitions with policies left
+     * @param size number of partitions in the heap
+     * @param i position of the partition to move
+     */
+    private void SiftDown(PolicyMonths[] months, int[] heads, int[] heap, int size, int i) {
+        
+        // local variables
+        int p = heap[i];
+        long key = (size > 0) ? months[p].getPolicyId(heads[p]) : 0;
+        int child = 0;
+        
+        while ((child = 2 * i + 1) < size) {
+            
+            // pick the smaller child
+            if (child + 1 < size && months[heap[child + 1]].getPolicyId(heads[heap[child + 1]])
+                    < months[heap[child]].getPolicyId(heads[heap[child]])) {
+                child++;
+            }
+            
+            if (months[heap[child]].getPolicyId(heads[heap[child]]) >= key) {
+                break;
+            }
+            
+            heap[i] = heap[child];
+            i = child;
+        }
+        
+        heap[i] = p;
+    }
+    
+    /**
+     * Builds the payout summary for one policy out of its month buckets.
+     * @param months the month buckets holding the policy
+     * @param i index of the policy within the buckets
+     * @param nextFirstMonth the first month of the policy that follows it by policyId
+     * @return The payout summary for the policy.
+     */
+    private PayoutSummary SummarizeBuckets(PolicyMonths months, int i, int nextFirstMonth) {
+        
+        // local variables
+        int buckets = months.getBucketCount(i);
+        int lastMonth = months.getBucketMonth(i, buckets - 1);
+        int count = buckets + ((nextFirstMonth > lastMonth) ? 1 : 0);
+        double overallSum = 0.0;
+        double[] tmpData = new double[count];
+        int[] tmpTimeline = new int[count];
+        
+        // one entry per bucket, in month order
+        for (int b = 0; b < buckets; b++) {
+            overallSum += months.getBucketSum(i, b);
+            tmpData[b] = months.getBucketSum(i, b);
+            tmpTimeline[b] = months.getBucketMonth(i, b);
+        }
+        
+        // the sorted walk closes out a policy at the next policy's first month when it is later
+        if (nextFirstMonth > lastMonth) {
+            tmpData[buckets] = 0.0;
+            tmpTimeline[buckets] = nextFirstMonth;
+        }
+        
+        return new PayoutSummary(months.getPolicyId(i), overallSum, tmpData, tmpTimeline);
+    }
+    
+    /**
+     * Determines how many policies, in policyId order, the sorted walk over raw claims
+     * closes out with a payout summary. A policy is only closed out once a later
+     * policy has a monthly summary: the last policy never gets one for its final
+     * month, so the policy before it is only closed out when the last policy has an
+     * earlier month as well.
+     * @param policies the number of policies
+     * @param lastMonths the number of months with claims for the last policy
+     * @return The number of policies that get payout summaries.
+     */
+    private int ClosedPolicies(int policies, int lastMonths) {
+        return Math.max(0, policies - ((lastMonths > 1) ? 1 : 2));
+    }
+    
+    /**
+     * Builds payout summaries into their final positions, across threads when running
+     * in parallel, and adds them to the list of summaries in order.
+     * @param count the number of summaries
+     * @param summarize builds the summary for a position
+     */
+    private void AddSummaries(int count, IntFunction<PayoutSummary> summarize) {
+        
+        // local variables
+        PayoutSummary[] summaries = new PayoutSummary[count];
+        
+        if (this._parallel) {
+            IntStream.range(0, count).parallel().forEach(i -> summaries[i] = summarize.apply(i));
+        } else {
+            for (int i = 0; i < count; i++) {
+                summaries[i] = summarize.apply(i);
+            }
+        }
+        
+        this._payoutSummaries.addAll(Arrays.asList(summaries));
+    }
+    
+    /**
+     * Builds the payout summaries from streamed per-policy, per-month accumulators.
+     * 
+     * Each summary matches what the sorted walk over raw claims produces: one timeline
+     * entry per month with claims, plus an empty entry at the next policy's first month
+     * when that month comes later, and no summaries for the policies the walk never
+     * closes out (see ClosedPolicies).
+     * Monthly sums are accumulated in the order claims were read rather than by claim
+     * date, so they can differ from the sorted walk in the last bits.
+     * @return success flag used for error trapping
+     */
+    private boolean SummarizeAggregate() {
+        
+        // local variable definitions
+        boolean success = true;
+        final int[] order;
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // only the policy keys get sorted
+            order = this._aggregate.sortedSlots();
+            
+            this.AddSummaries(
+                    (order.length == 0) ? 0 : this.ClosedPolicies(order.length, 
+                            Integer.bitCount(this._aggregate.getMonths(order[order.length - 1]))),
+                    i -> this.SummarizePolicy(order[i], order[i + 1]));
+            
+        // catch ANY exceptions here:  
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return success flag
+        return success;
+    }
+    
+    /**
+     * Builds the payout summary for one policy out of its month buckets.
+     * @param slot the aggregator slot of the policy
+     * @param nextSlot the aggregator slot of the policy that follows it by policyId
+     * @return The payout summary for the policy.
+     */
+    private PayoutSummary SummarizePolicy(int slot, int nextSlot) {
+        
+        // local variables
+        int months = this._aggregate.getMonths(slot);
+        int lastMonth = 31 - Integer.numberOfLeadingZeros(months);
+        int nextFirstMonth = Integer.numberOfTrailingZeros(this._aggregate.getMonths(nextSlot));
+        int count = Integer.bitCount(months) + ((nextFirstMonth > lastMonth) ? 1 : 0);
+        int i = 0;
+        double overallSum = 0.0;
+        double[] tmpData = new double[count];
+        int[] tmpTimeline = new int[count];
+        
+        // one entry per month with claims, in month order
+        for (int m = 0; m < ClaimAggregator.MONTHS; m++) {
+            if ((months & (1 << m)) != 0) {
+                overallSum += this._aggregate.getPaidSum(slot, m);
+                tmpData[i] = this._aggregate.getPaidSum(slot, m);
+                tmpTimeline[i] = m;
+                i++;
+            }
+        }
+        
+        // the sorted walk closes out a policy at the next policy's first month when it is later
+        if (nextFirstMonth > lastMonth) {
+            tmpData[i] = 0.0;
+            tmpTimeline[i] = nextFirstMonth;
+        }
+        
+        return new PayoutSummary(this._aggregate.getPolicyId(slot), overallSum, tmpData, tmpTimeline);
+    }
+    
+    /**
+     * Method used to calculate the intial values for the centroids on k clusters,
+     * using k-means++ seeding from a random seed.
      * @param k Number of clusters to find centroids for.
-     * @return 
+     * @return The initial centroids (fewer than k only when there are fewer distinct policies).
      */
     public List<Centroid> FindInitialCentroids(int k) {
+        return this.FindInitialCentroids(k, new Random().nextLong());
+    }
+    
+    /**
+     * Method used to calculate the intial values for the centroids on k clusters.
+     * Uses k-means++ seeding, or k-means|| when running in parallel over a large
+     * number of policies. The same seed always gives the same centroids.
+     * @param k Number of clusters to find centroids for.
+     * @param seed Seed for the random draws.
+     * @return The initial centroids (fewer than k only when there are fewer distinct policies).
+     */
+    public List<Centroid> FindInitialCentroids(int k, long seed) {
         
         // local variables
-        int random = 0;
-        Centroid tmp;
-        List<Centroid> centroids;
-        Random r;
-        
-        // initialize objects
-        centroids = new ArrayList<>();
-        r = new Random();
+        FeatureMatrix features = null;
+        double[] centroids = null;
+        KMeans kMeans;
+        CentroidTable profiles = null;
+        List<Centroid> initialCentroids = new ArrayList<>();
         
         // use try-catch block for trapping errors
         try {
             
-            // loop k times for k clusters
-            for (int i = 0; i < k; i++) {
-                
-                // get the next random index
-                random = r.nextInt(this._payoutSummaries.size());
-                
-                // find a new random centroid at that random index
-                tmp = this._payoutSummaries.get(random).getCentroid();
-                
-                // only add unique centroids
-                if (!centroids.contains(tmp)) {
-                    centroids.add(tmp);
-                }
+            features = this.ClusterFeatures();
+            centroids = this.SeedCentroids(features, k, seed);
+            
+            // centroids are reported in prediction terms, which needs the policies nearest each one
+            kMeans = new KMeans(features.getValues(), features.getDims());
+            kMeans.setCentroids(centroids);
+            kMeans.setParallel(this._parallel);
+            kMeans.assignAll();
+            
+            profiles = this.ClusterProfiles(features, centroids, kMeans.getAssignments());
+            for (int c = 0; c < profiles.size(); c++) {
+                initialCentroids.add(profiles.getCentroid(c));
             }
             
         // catch any exceptions here:
@@ -228,124 +664,169 @@ public class ForecastEngine {
             System.err.println(ex.getMessage());
         }
         
-        // return list of randomly selected centroids
-        return centroids;
+        // return list of initial centroids
+        return initialCentroids;
+    }
+    
+    /**
+     * Picks starting centroids from the clustering features.
+     * @param features clustering features
+     * @param k Number of clusters to find centroids for.
+     * @param seed Seed for the random draws.
+     * @return The centroids, row-major.
+     */
+    private double[] SeedCentroids(FeatureMatrix features, int k, long seed) {
+        
+        // k-means|| needs far fewer passes than k-means++ once there are many policies
+        if (this._parallel && features.getValues().length / features.getDims() >= SEED_PARALLEL_MIN_POLICIES) {
+            return CentroidSeeder.kMeansParallel(features.getValues(), features.getDims(), k, seed, CentroidSeeder.DEFAULT_ROUNDS, true);
+        }
+        
+        return CentroidSeeder.kMeansPlusPlus(features.getValues(), features.getDims(), k, seed);
     }
     
     /**
      * Method used for cimputing the clustering groups on the payout summaries.
+     * 
+     * Policies are clustered on the clustering features (see setClusterFeatures), and
+     * each payout summary's centroid is set to the centroid of its cluster.
+     * Starting centroids come from a random seed.
      * @param k Number of clusters to form.
      * @param epsilon (epsilon) Threshold value for determining when to stop computing.
      * @return Success flag for error trapping.
      */
     public boolean ComputeClusters(int k, double epsilon) {
+        return this.ComputeClusters(k, epsilon, new Random().nextLong());
+    }
+    
+    /**
+     * Method used for cimputing the clustering groups on the payout summaries.
+     * 
+     * Policies are clustered on the clustering features (see setClusterFeatures), and
+     * each payout summary's centroid is set to the centroid of its cluster. The same
+     * seed always gives the same clusters.
+     * @param k Number of clusters to form.
+     * @param epsilon (epsilon) Threshold value for determining when to stop computing.
+     * @param seed Seed for picking the starting centroids.
+     * @return Success flag for error trapping.
+     */
+    public boolean ComputeClusters(int k, double epsilon, long seed) {
         
         // local variables
         boolean success = true;
-        int clusterSize = 0;
-        double clusterSumX = 0.0;
-        double clusterSumY = 0.0;
-        double centroidDiff = epsilon;        
-        
-        Centroid current;
-        Centroid closest;
-        List<Centroid> initialCentroids;
-        List<Centroid> newCentroids;
+        FeatureMatrix features = null;
+        double[] centroids = null;
+        KMeans kMeans;
         
         // use try-catch block for error trapping purposes
         try {
             
             // (1) get initial centroids
-            initialCentroids = this.FindInitialCentroids(k);
+            features = this.ClusterFeatures();
+            centroids = this.SeedCentroids(features, k, seed);
             
-            /// LOOP START
-            while (centroidDiff >= epsilon) {
+            // (2) cluster until the centroids settle
+            kMeans = this.RunKMeans(features, centroids, epsilon);
             
-                // reset k to match the size of initial Centroids,
-                // handles cases where less clusters are found than k.
-                k = initialCentroids.size();
-
-                // set up list objects for storing the new centroid values and differnces
-                newCentroids = new ArrayList<>();
-
-                // reset variable for calculating centroid differences
-                centroidDiff = 0  ;
-
-                // (2) loop through and assign each policyId to its nearest centroid
-                for (int i = 0; i < this._payoutSummaries.size(); i++) {
-
-                    // assign the current policyId's centroid to a temp variable
-                    current = this._payoutSummaries.get(i).getCentroid();
-                    
-                    // snag a starting closest centroid
-                    closest = initialCentroids.get(0);
-
-                    // loop through cluster centroids looking for the closest centroid
-                    for (Centroid o : initialCentroids) {
-
-                        // compare the distance between the current centroid in the loop, p, and
-                        // the closest centroid, with the distance from the closest to the current 
-                        // summary's centroid, keeping the lowest value
-                        if (o.distanceTo(current) < closest.distanceTo(current)) {
-                            closest = o;
-                        }
-                    }
-
-                    this._payoutSummaries.get(i).setCentroid(closest);
-                }
-
-                // sort payout summaries now that cluster assignments have been made
-//                Collections.sort(this._payoutSummaries);
-
-                // (3) calculate new centroid values based on clustering assignment from (2)
-                for (Centroid c : initialCentroids) {
-
-                    // reset cluster size and sums
-                    clusterSize = 0;
-                    clusterSumX = 0;
-                    clusterSumY = 0;
-
-                    // loop over all policyIds
-                    for (PayoutSummary tmp : this._payoutSummaries) {
-
-                        // only focusing on policy Ids in current cluster
-                        if (tmp.getCentroid().equals(c)) {
-
-                            // increment cluster size counter
-                            clusterSize++;
-
-                            // add to cluster sums, for calc new centroid values
-                            clusterSumX += tmp.getAvgBetweenTime();
-                            clusterSumY += tmp.getMean();
-                        }
-                    }
-
-                    // only add new centroid if cluster size > 0
-                    if (clusterSize > 0) {
-                        // add new centroid to list
-                        newCentroids.add(new Centroid(
-                                clusterSumX / clusterSize,
-                                clusterSumY / clusterSize
-                            ));
-                    }
-
-                }
-
-                // (4) calculate the differences between new centroids and initial centroids
-                for (Centroid o : initialCentroids) {
-                    for (Centroid p : newCentroids) {
-                        double tmp = o.distanceTo(p);
-                        if (!Double.isNaN(tmp)) {
-                            centroidDiff += tmp;
-                        } else {
-                            centroidDiff += 0;
-                        }
-                    }
-                }
+            // (3) point each policyId at its cluster's centroid
+            this.ApplyClusters(features, kMeans.getCentroids(), kMeans.getAssignments());
+            
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return the success flag for error trapping
+        return success;
+    }
+    
+    /**
+     * Method used for computing the clustering groups on the payout summaries,
+     * warm-started from an earlier model (e.g. last month's, reloaded through
+     * DataHandling) instead of from random seeds. When most policies behave as they
+     * did before, the starting centroids are already close and only a few iterations
+     * are needed.
+     * 
+     * The model must have been built on the same clustering features and scaling;
+     * policies are rescaled with the model's shift and scale rather than their own.
+     * @param start Model whose centroids to start from; k comes from the model.
+     * @param epsilon (epsilon) Threshold value for determining when to stop computing.
+     * @return Success flag for error trapping.
+     */
+    public boolean ComputeClusters(ClusterModel start, double epsilon) {
+        
+        // local variables
+        boolean success = true;
+        FeatureMatrix features = null;
+        KMeans kMeans;
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // (1) start from the model's centroids, in the model's rescaled space
+            features = this.ClusterFeatures(start);
+            
+            // (2) cluster until the centroids settle
+            kMeans = this.RunKMeans(features, start.getCentroids(), epsilon);
+            
+            // (3) point each policyId at its cluster's centroid
+            this.ApplyClusters(features, kMeans.getCentroids(), kMeans.getAssignments());
+            
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return the success flag for error trapping
+        return success;
+    }
+    
+    /**
+     * Method used for reusing an earlier clustering as is, without iterating.
+     * 
+     * Policies the model has seen keep their cluster, and new policies join the
+     * cluster with the closest centroid. The model must have been built on the same
+     * clustering features and scaling; policies are rescaled with the model's shift
+     * and scale rather than their own.
+     * @param model Model whose centroids and assignments to apply.
+     * @return Success flag for error trapping.
+     */
+    public boolean ApplyClusterModel(ClusterModel model) {
+        
+        // local variables
+        boolean success = true;
+        FeatureMatrix features = null;
+        double[] centroids = null;
+        int[] assignments = null;
+        int cluster = 0;
+        KMeans kMeans;
+        
+        // use try-catch block for error trapping purposes
+        try {
+            centroids = model.getCentroids();
+            features = this.ClusterFeatures(model);
+            
+            // (1) closest centroid for every policy, covering the ones the model has not seen
+            kMeans = new KMeans(features.getValues(), features.getDims());
+            kMeans.setCentroids(centroids);
+            kMeans.setParallel(this._parallel);
+            kMeans.assignAll();
+            assignments = kMeans.getAssignments();
+            
+            // (2) policies the model has seen keep their cluster
+            for (int i = 0; i < this._payoutSummaries.size(); i++) {
+                cluster = model.findCluster(this._payoutSummaries.get(i).getPolicyId());
                 
-                // (5) set next initial centroids to the list of new centroids
-                initialCentroids = newCentroids;
+                if (cluster >= 0) {
+                    assignments[i] = cluster;
+                }
             }
+            
+            // (3) point each policyId at its cluster's centroid
+            this.ApplyClusters(features, centroids, assignments);
+            
         } catch (Exception ex) {
             // set the success flag to false to indicate failure :(
             success = false;
@@ -356,21 +837,386 @@ public class ForecastEngine {
         return success;
     }
     
+    /**
+     * Method used for computing the clustering groups on the payout summaries with
+     * mini-batch k-means, for policy counts too large for full passes over every
+     * policy on each iteration. Centroids are pulled toward small random batches of
+     * policies, and only the final assignment touches every policy.
+     * 
+     * Policies are clustered on the clustering features (see setClusterFeatures), and
+     * each payout summary's centroid is set to the centroid of its cluster. The same
+     * seed always gives the same clusters.
+     * @param k Number of clusters to form.
+     * @param batchSize Number of policies per batch.
+     * @param epsilon (epsilon) Threshold on centroid movement per batch for determining when to stop computing.
+     * @param seed Seed for picking the starting centroids and drawing the batches.
+     * @return Success flag for error trapping.
+     */
+    public boolean ComputeClustersMiniBatch(int k, int batchSize, double epsilon, long seed) {
+        
+        // local variables
+        boolean success = true;
+        FeatureMatrix features = null;
+        MiniBatchKMeans kMeans;
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // (1) get initial centroids
+            features = this.ClusterFeatures();
+            
+            // (2) cluster batch by batch until the centroids settle
+            kMeans = new MiniBatchKMeans(features.getValues(), features.getDims());
+            kMeans.setCentroids(this.SeedCentroids(features, k, seed));
+            kMeans.setBatchSize(batchSize);
+            kMeans.setParallel(this._parallel);
+            kMeans.run(epsilon, seed);
+            
+            // (3) point each policyId at its cluster's centroid
+            this.ApplyClusters(features, kMeans.getCentroids(), kMeans.getAssignments());
+            
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return the success flag for error trapping
+        return success;
+    }
+    
+    /**
+     * Method used for picking the number of clusters: clusters the payout summaries
+     * for every k in a range, all from the same seed, and scores each k with a
+     * sampled silhouette. When running in parallel the ks are clustered concurrently
+     * on the common fork/join pool, so the sweep takes about as long as its slowest k.
+     * 
+     * Each payout summary's centroid is then set from the best k, and the best
+     * model is also kept as the engine's cluster model.
+     * @param minK Smallest number of clusters to try.
+     * @param maxK Largest number of clusters to try.
+     * @param epsilon (epsilon) Threshold value for determining when to stop computing.
+     * @param seed Seed for picking the starting centroids and the silhouette sample.
+     * @return Scores and timings per k plus the best model, or null on failure.
+     */
+    public ClusterSweep SweepClusters(int minK, int maxK, double epsilon, long seed) {
+        
+        // local variables
+        boolean success = true;
+        final ClusterSweep sweep = new ClusterSweep(minK, maxK);
+        final FeatureMatrix features;
+        IntStream ks = IntStream.rangeClosed(minK, maxK);
+        long start = System.nanoTime();
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // (1) cluster and score every k
+            features = this.ClusterFeatures();
+            (this._parallel ? ks.parallel() : ks).forEach(k -> {
+                long kStart = System.nanoTime();
+                KMeans kMeans = this.RunKMeans(features, this.SeedCentroids(features, k, seed), epsilon);
+                double score = ClusterSweep.sampledSilhouette(features.getValues(), features.getDims(), kMeans.getAssignments(),
+                        kMeans.getK(), ClusterSweep.DEFAULT_SILHOUETTE_SAMPLE, seed);
+                double inertia = kMeans.inertia();
+                
+                // only the bookkeeping is done under the sweep's lock
+                sweep.record(k, kMeans.getK(), inertia, kMeans.getIterations(), kMeans.getCentroids(), kMeans.getAssignments(), 
+                        score, System.nanoTime() - kStart);
+            });
+            
+            // (2) point each policyId at its cluster's centroid under the best k
+            if (sweep.getBestK() > 0) {
+                this.ApplyClusters(features, sweep.getBestCentroids(), sweep.getBestAssignments());
+                sweep.finish(this._clusterModel, System.nanoTime() - start);
+            } else {
+                sweep.finish(null, System.nanoTime() - start);
+            }
+            
+        } catch (Exception ex) {
+            // set the success flag to false to indicate failure :(
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return the sweep, or null for error trapping
+        return success ? sweep : null;
+    }
+    
+    /**
+     * Runs k-means over the clustering features from a set of starting centroids.
+     * @param features the clustering features
+     * @param centroids the starting centroids, row-major
+     * @param epsilon threshold on total centroid movement for stopping
+     * @return The converged clustering.
+     */
+    private KMeans RunKMeans(FeatureMatrix features, double[] centroids, double epsilon) {
+        
+        // local variables
+        KMeans kMeans = new KMeans(features.getValues(), features.getDims());
+        
+        kMeans.setCentroids(centroids);
+        kMeans.setParallel(this._parallel);
+        kMeans.setAccelerated(true); // same clusters as plain Lloyd, far fewer distance calculations
+        kMeans.run(epsilon);
+        
+        return kMeans;
+    }
+    
+    /**
+     * Points each payout summary at its cluster in one centroid table shared by all
+     * of them, and keeps the clustering as the engine's model.
+     * @param features the clustering features
+     * @param centroids the cluster centroids, row-major
+     * @param assignments the cluster of each payout summary
+     */
+    private void ApplyClusters(FeatureMatrix features, double[] centroids, int[] assignments) {
+        
+        // local variables
+        CentroidTable clusters = this.ClusterProfiles(features, centroids, assignments);
+        long[] policyIds = new long[this._payoutSummaries.size()];
+        
+        for (int i = 0; i < this._payoutSummaries.size(); i++) {
+            this._payoutSummaries.get(i).setCluster(clusters, assignments[i]);
+            policyIds[i] = this._payoutSummaries.get(i).getPolicyId();
+        }
+        
+        this._clusterModel = new ClusterModel(
+                Arrays.copyOf(this._features, this._features.length), 
+                Arrays.copyOf(this._scaling, this._scaling.length), 
+                features.getShift(), 
+                features.getScale(), 
+                Arrays.copyOf(centroids, centroids.length),
+                policyIds, 
+                Arrays.copyOf(assignments, assignments.length));
+    }
+    
+    /**
+     * Describes each cluster by the two values predictions are made from: average
+     * time between payouts and mean payout. When a value is a clustering feature it
+     * is read off the centroid, in the feature's units; otherwise it is the average
+     * over the cluster's payout summaries.
+     * @param features the clustering features
+     * @param centroids the cluster centroids, row-major
+     * @param assignments the cluster of each payout summary
+     * @return The centroid table, one entry per cluster.
+     */
+    private CentroidTable ClusterProfiles(FeatureMatrix features, double[] centroids, int[] assignments) {
+        
+        // local variables
+        int dims = features.getDims();
+        int k = centroids.length / dims;
+        int t = Arrays.asList(this._features).indexOf(ClusterFeature.AVG_TIME_BETWEEN);
+        int m = Arrays.asList(this._features).indexOf(ClusterFeature.MEAN_PAYOUT);
+        double[] x = new double[k];
+        double[] y = new double[k];
+        double[] avgTimes = new double[k];
+        double[] means = new double[k];
+        int[] counts = new int[k];
+        PayoutSummary tmp = null;
+        
+        // average the values that were not clustered on over each cluster
+        if (t < 0 || m < 0) {
+            for (int i = 0; i < this._payoutSummaries.size(); i++) {
+                tmp = this._payoutSummaries.get(i);
+                avgTimes[assignments[i]] += tmp.getAvgBetweenTime();
+                means[assignments[i]] += tmp.getMean();
+                counts[assignments[i]]++;
+            }
+        }
+        
+        for (int c = 0; c < k; c++) {
+            x[c] = (t >= 0) ? features.unscale(t, centroids[c * dims + t]) : avgTimes[c] / counts[c];
+            y[c] = (m >= 0) ? features.unscale(m, centroids[c * dims + m]) : means[c] / counts[c];
+        }
+        
+        return new CentroidTable(x, y);
+    }
+    
+    /**
+     * Lays out the clustering features of every payout summary row-major, in the
+     * order set by setClusterFeatures, then fills in missing values and rescales.
+     * @return The feature matrix, one row per payout summary.
+     */
+    private FeatureMatrix ClusterFeatures() {
+        return new FeatureMatrix(this.FeatureValues(), this._features.length, this._scaling);
+    }
+    
+    /**
+     * Lays out the clustering features of every payout summary row-major, then fills
+     * in missing values and rescales them with the shift and scale a model was built
+     * with, so they are in the same space as the model's centroids. Recomputing the
+     * shift and scale from this run's policies would move them out of that space.
+     * @param model the model whose rescaled space to use
+     * @return The feature matrix, one row per payout summary.
+     */
+    private FeatureMatrix ClusterFeatures(ClusterModel model) {
+        
+        // local variables
+        double[] shift = new double[model.getDims()];
+        double[] scale = new double[model.getDims()];
+        
+        // the model's centroids only mean something for the features it was built on
+        if (!Arrays.equals(model.getFeatures(), this._features)) {
+            throw new IllegalArgumentException("Cluster model was built on features " + Arrays.toString(model.getFeatures()) 
+                    + ", expected " + Arrays.toString(this._features));
+        }
+        if (!Arrays.equals(model.getScaling(), this._scaling)) {
+            throw new IllegalArgumentException("Cluster model was built with scaling " + Arrays.toString(model.getScaling()) 
+                    + ", expected " + Arrays.toString(this._scaling));
+        }
+        
+        for (int d = 0; d < model.getDims(); d++) {
+            shift[d] = model.getShift(d);
+            scale[d] = model.getScale(d);
+        }
+        
+        return new FeatureMatrix(this.FeatureValues(), model.getDims(), shift, scale);
+    }
+    
+    /**
+     * Lays out the raw clustering features of every payout summary row-major, in the
+     * order set by setClusterFeatures.
+     * @return The feature values, one row per payout summary, NaN where missing.
+     */
+    private double[] FeatureValues() {
+        
+        // local variables
+        int dims = this._features.length;
+        double[] values = new double[this._payoutSummaries.size() * dims];
+        List<ClusterFeature> used = Arrays.asList(this._features);
+        ClaimAggregator claims = null;
+        PayoutSummary tmp = null;
+        int slot = -1;
+        
+        // claim totals include unpaid claims, so they come from the claims rather than the summaries
+        if (used.contains(ClusterFeature.TOTAL_CLAIMED) || used.contains(ClusterFeature.CLAIM_COUNT)) {
+            claims = (this._aggregate != null) ? this._aggregate : this._rawData.aggregate();
+        }
+        
+        if (used.contains(ClusterFeature.MONTHLY_PREMIUM) && this._policies == null) {
+            throw new IllegalStateException("Clustering on monthly premium needs the policy level data");
+        }
+        
+        for (int i = 0; i < this._payoutSummaries.size(); i++) {
+            tmp = this._payoutSummaries.get(i);
+            slot = (claims == null) ? -1 : claims.slotOf(tmp.getPolicyId());
+            
+            for (int d = 0; d < dims; d++) {
+                values[i * dims + d] = this.FeatureValue(this._features[d], tmp, claims, slot);
+            }
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Reads one clustering feature of a policy.
+     * @param feature the feature to read
+     * @param summary the policy's payout summary
+     * @param claims the claims aggregated by policy, or null when no claim totals are needed
+     * @param slot the policy's slot in the claims, or -1
+     * @return The feature value, or NaN when it is not known for the policy.
+     */
+    private double FeatureValue(ClusterFeature feature, PayoutSummary summary, ClaimAggregator claims, int slot) {
+        
+        switch (feature) {
+            case AVG_TIME_BETWEEN:
+                return summary.getAvgBetweenTime();
+            case MEAN_PAYOUT:
+                return summary.getMean();
+            case TOTAL_PAID:
+                return summary.getSum();
+            case PAYOUT_MONTHS:
+                return summary.getCount();
+            case TOTAL_CLAIMED:
+                return (slot < 0) ? Double.NaN : claims.getClaimedSum(slot);
+            case CLAIM_COUNT:
+                return (slot < 0) ? Double.NaN : claims.getClaimCount(slot);
+            default:
+                return this._policies.getMonthlyPremium(summary.getPolicyId());
+        }
+    }
+    
     /**
      * This method does the all-important task of calculating the predictions.
+     * The predictions are kept for the month (see getPredictions(int)) and are
+     * part of getPredictions() until cleared, the same as with CalculatePredictions(int[]).
      * @param month the month to make a forecast for, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
      * @return success flag used for error trapping purposes
      */
     public boolean CalculatePredictions(int month) {
+        return this.CalculatePredictions(new int[] { month });
+    }
+    
+    /**
+     * Calculates predictions for several forecast months from the same payout
+     * summaries, so the claims only need to be loaded and summarized once. The
+     * predictions for each month are kept on their own; read them back with
+     * getPredictions(int), or all months held at once with getPredictions().
+     * Recalculating a month replaces its predictions, moving it to the end of
+     * getPredictions(). Every month asked for is held until it is cleared, so to
+     * keep memory down, forecast a month at a time and call ClearPredictions(int)
+     * once it is saved.
+     * @param months the months to make forecasts for, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     * @return success flag used for error trapping purposes
+     */
+    public boolean CalculatePredictions(int[] months) {
         
         // local variables
         boolean success = true;
-        Iterator cursor = null;
-        PayoutSummary tmpSummary = null;
                 
         // use try-catch block for error trapping purposes
         try {
             
+            for (int month : months) {
+                this._monthPredictions.remove(month);
+                this._monthPredictions.put(month, this.PredictMonth(month));
+            }
+            
+        // catch any exceptions here:
+        } catch (Exception ex) {
+            // set the success flag appropriately, and send an error msg
+            success = false;
+            System.err.print(ex.getMessage());
+        }
+        
+        // return success flag
+        return success;
+    }
+    
+    /**
+     * Lets go of the predictions kept for one forecast month, e.g. once they are saved.
+     * @param month the forecast month, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     */
+    public void ClearPredictions(int month) {
+        this._monthPredictions.remove(month);
+    }
+    
+    /**
+     * Calculates the prediction for every payout summary for one forecast month.
+     * When running in parallel, each thread writes its predictions straight into
+     * their final positions, so the order matches the sequential path and no
+     * thread waits on another to add to the list.
+     * @param month the month to make a forecast for
+     * @return The predictions, in payout summary order.
+     */
+    private List<PayoutPrediction> PredictMonth(int month) {
+        
+        // local variables
+        PayoutPrediction[] predictions = new PayoutPrediction[this._payoutSummaries.size()];
+        Iterator cursor = null;
+        PayoutSummary tmpSummary = null;
+        int i = 0;
+        
+        if (this._parallel) {
+            
+            // predictions are independent of each other, one slot per payout summary
+            IntStream.range(0, predictions.length).parallel()
+                    .forEach(p -> predictions[p] = this.Prediction(this._payoutSummaries.get(p), month));
+            
+        } else {
+            
             // setup a new iterator (like an SQL cursor) for walking thru payout
             // summaries and calculating predictions
             cursor = this._payoutSummaries.iterator();
@@ -382,18 +1228,58 @@ public class ForecastEngine {
                 tmpSummary = (PayoutSummary) cursor.next();
                 
                 // get and store prediction
-                this._predictions.add(this.Prediction(tmpSummary, month));
+                predictions[i++] = this.Prediction(tmpSummary, month);
             }
+        }
+        
+        return new ArrayList<>(Arrays.asList(predictions));
+    }
+    
+    /**
+     * Estimates the payout of every payout summary for one forecast month in a single
+     * batch, without building prediction objects: the prediction inputs are gathered
+     * into one array per input and run through BatchPredictor. The estimates are the
+     * same as those of CalculatePredictions.
+     * @param month the month to make a forecast for, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     * @return The estimated payouts, in payout summary order, or null on failure.
+     */
+    public double[] CalculateEstimates(int month) {
+        
+        // local variables
+        int n = this._payoutSummaries.size();
+        double[] avgT = new double[n];
+        double[] stdT = new double[n];
+        double[] targetMean = new double[n];
+        double[] efm = new double[n];
+        int[] prevT = new int[n];
+        double[] estimates = null;
+        IntStream range = IntStream.range(0, n);
+        
+        // use try-catch block for error trapping purposes
+        try {
+            
+            // (1) gather the prediction inputs column by column
+            (this._parallel ? range.parallel() : range).forEach(i -> {
+                PayoutSummary s = this._payoutSummaries.get(i);
+                
+                avgT[i] = s.getCentroidX();
+                stdT[i] = s.getStdDevBetweenTime();
+                targetMean[i] = s.getCentroidY();
+                efm[i] = s.getEfm(month);
+                prevT[i] = s.getMostRecentPayoutMonth(month);
+            });
+            
+            // (2) estimate every policy in one pass
+            estimates = BatchPredictor.predict(month, avgT, stdT, targetMean, efm, prevT, this._parallel);
             
         // catch any exceptions here:
         } catch (Exception ex) {
-            // set the success flag appropriately, and send an error msg
-            success = false;
+            // send an error msg
             System.err.print(ex.getMessage());
         }
         
-        // return success flag
-        return success;
+        // return the estimates, or null for error trapping
+        return estimates;
     }
     
     private PayoutPrediction Prediction(PayoutSummary s, int t) {
@@ -408,39 +1294,19 @@ public class ForecastEngine {
         double timeProb = 0.0;
         double avgT = 0.0;
         double stdT = 0.0;
-        double timeZ = 0.0;
-        DecimalFormat df = new DecimalFormat("#.##");
         
         // parse data from object
-        avgT = s.getCentroid().getX();
-        targetMean = s.getCentroid().getY();        
+        avgT = s.getCentroidX();
+        targetMean = s.getCentroidY();
         prevT = s.getMostRecentPayoutMonth(t);
         efm = s.getEfm(t);
         efmI = s.getEfmI(t);
         efmD = s.getEfmD(t);
         stdT = s.getStdDevBetweenTime();
         
-        if (stdT > 0) {
-            // calc the z score for the timing of this predicted month
-            timeZ = ((t - prevT) - avgT) / stdT;
-
-            // determine timing probability based on 2sigma window
-            if (Math.abs(timeZ) > (2 * stdT)) {
-                timeProb = 0;
-            } else {
-                timeProb = Math.abs(timeZ - (2 * stdT)) / (2 * stdT);
-            }
-        } else {
-            timeProb = 0;
-        }
-        
-        // make new prediction
-        prediction = targetMean * timeProb * (1 - efm);
-        
-        // validate prediction
-        if (Double.isNaN(prediction)) {
-            prediction = 0.0;
-        }
+        // same arithmetic as the batch predictor, so both give identical estimates
+        timeProb = BatchPredictor.timingProbability(t, prevT, avgT, stdT);
+        prediction = BatchPredictor.estimate(targetMean, timeProb, efm);
         
         // return the results
         return new PayoutPrediction(
@@ -454,7 +1320,7 @@ public class ForecastEngine {
                 efm,
                 efmI,
                 efmD,
-                Double.parseDouble(df.format(prediction)), 
+                prediction, 
                 ((t > 11) ? Double.NaN : s.getPaidAmount(t)));
     }
 }
@@ -0,0 +1,518 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Lloyd's k-means clustering over points stored row-major in one flat array
+ * (point i, dimension d at index i * dims + d).
+ *
+ * Each iteration makes a single pass over the points: every point is assigned to
+ * its nearest centroid (lowest index wins ties) and added into per-cluster sum and
+ * count accumulators on the way, so the new centroids fall straight out of the
+ * accumulators. A cluster that ends up empty keeps its previous centroid.
+ *
+ * An accelerated mode (Hamerly's algorithm) keeps, for every point, an upper bound
+ * on the distance to its assigned centroid and a lower bound on the distance to
+ * every other centroid, plus half the distance from each centroid to its nearest
+ * neighbour. Points whose bounds prove their assignment cannot change skip the
+ * distance calculations. The bounds are widened by a small relative slack so that
+ * rounding can never skip a point whose assignment would change (ties included),
+ * and sums are still accumulated in point order, so accelerated runs produce
+ * exactly the same assignments and centroids as plain Lloyd iterations.
+ *
+ * Points are processed in fixed-size blocks, each with its own accumulators, and
+ * the blocks' accumulators are added together in block order. Blocks can therefore
+ * run on any number of threads and still produce exactly the same centroids as a
+ * sequential run.
+ *
+ * @author Nathan Minor
+ */
+public final class KMeans {
+
+    /** Default cap on the number of iterations per run. */
+    public static final int DEFAULT_MAX_ITERATIONS = 300;
+
+    // number of points per block of accumulators
+    private static final int BLOCK_SIZE = 4096;
+
+    // relative slack applied to distance bounds, far larger than any rounding error
+    private static final double BOUND_SLACK = 1e-10;
+
+    // internal class variables
+    private final double[] _points;   // stores the points, row-major
+    private final int _dims;          // stores the number of dimensions per point
+    private final int _n;             // stores the number of points
+    private final int[] _assignments; // stores the cluster each point is assigned to
+    private double[] _centroids;      // stores the centroids, row-major
+    private int _k;                   // stores the number of clusters
+    private int _maxIterations;       // stores the cap on iterations per run
+    private int _iterations;          // stores the number of iterations the last run took
+    private boolean _parallel;        // spread blocks across the common fork/join pool
+    private boolean _accelerated;     // skip distance calculations using Hamerly bounds
+    private double[] _upper;          // stores an upper bound on each point's distance to its centroid
+    private double[] _lower;          // stores a lower bound on each point's distance to any other centroid
+    private double[] _half;           // stores half the distance from each centroid to its nearest other centroid
+    private double[] _moves;          // stores how far each centroid moved in the last update
+
+    /**
+     * Constructs a new clustering over a set of points.
+     * @param points the points, row-major (point i, dimension d at index i * dims + d)
+     * @param dims the number of dimensions per point
+     */
+    public KMeans(double[] points, int dims) {
+        this._points = points;
+        this._dims = dims;
+        this._n = points.length / dims;
+        this._assignments = new int[this._n];
+        this._centroids = new double[0];
+        this._k = 0;
+        this._maxIterations = DEFAULT_MAX_ITERATIONS;
+        this._iterations = 0;
+        this._parallel = false;
+        this._accelerated = false;
+        this._upper = null;
+        this._lower = null;
+        this._half = null;
+        this._moves = null;
+    }
+
+    /**
+     * "Set" method for the starting centroids.
+     * @param centroids the centroids, row-major, with the same number of dimensions as the points
+     */
+    public void setCentroids(double[] centroids) {
+        this._centroids = Arrays.copyOf(centroids, centroids.length);
+        this._k = centroids.length / this._dims;
+    }
+
+    /**
+     * "Set" method for the cap on iterations per run.
+     * @param maxIterations the most iterations a run may take
+     */
+    public void setMaxIterations(int maxIterations) {
+        this._maxIterations = maxIterations;
+    }
+
+    /**
+     * "Set" method for spreading each iteration's blocks across the common fork/join
+     * pool. Results are the same either way.
+     * @param parallel true to run in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this._parallel = parallel;
+    }
+
+    /**
+     * "Set" method for skipping distance calculations with Hamerly bounds. Results
+     * are the same either way.
+     * @param accelerated true to use the bounds
+     */
+    public void setAccelerated(boolean accelerated) {
+        this._accelerated = accelerated;
+    }
+
+    /**
+     * "Get" method for retrieving the centroids.
+     * @return The centroids, row-major.
+     */
+    public double[] getCentroids() {
+        return this._centroids;
+    }
+
+    /**
+     * "Get" method for retrieving the cluster assignments.
+     * @return The cluster of each point.
+     */
+    public int[] getAssignments() {
+        return this._assignments;
+    }
+
+    /**
+     * "Get" method for retrieving the number of clusters.
+     * @return The number of clusters.
+     */
+    public int getK() {
+        return this._k;
+    }
+
+    /**
+     * "Get" method for retrieving the number of dimensions per point.
+     * @return The number of dimensions.
+     */
+    public int getDims() {
+        return this._dims;
+    }
+
+    /**
+     * "Get" method for retrieving the number of iterations the last run took.
+     * @return The number of iterations.
+     */
+    public int getIterations() {
+        return this._iterations;
+    }
+
+    /**
+     * Runs Lloyd iterations until the centroids move less than epsilon in total
+     * (summed over all centroids) or the iteration cap is hit.
+     * @param epsilon threshold on total centroid movement for stopping
+     * @return The number of iterations run.
+     */
+    public int run(double epsilon) {
+
+        // local variables
+        int blocks = (this._n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        double[][] blockSums = new double[blocks][this._k * this._dims];
+        int[][] blockCounts = new int[blocks][this._k];
+        double[] sums = new double[this._k * this._dims];
+        int[] counts = new int[this._k];
+        double movement = epsilon;
+
+        this._iterations = 0;
+
+        // nothing to cluster around
+        if (this._k == 0) {
+            return 0;
+        }
+
+        this.resetBounds();
+
+        while (movement >= epsilon && this._iterations < this._maxIterations) {
+
+            // (1) assign every point to its closest centroid, accumulating cluster sums
+            this.assignBlocks(blockSums, blockCounts, sums, counts);
+
+            // (2) move each centroid to the mean of its cluster
+            movement = this.update(sums, counts);
+
+            this._iterations++;
+        }
+
+        // leave the assignments matching the final centroids
+        this.assignBlocks(blockSums, blockCounts, sums, counts);
+
+        return this._iterations;
+    }
+
+    /**
+     * Assigns every point to its closest centroid without moving the centroids.
+     */
+    public void assignAll() {
+
+        // local variables
+        int blocks = (this._n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        this.resetBounds();
+        this.assignBlocks(
+                new double[blocks][this._k * this._dims],
+                new int[blocks][this._k],
+                new double[this._k * this._dims],
+                new int[this._k]);
+    }
+
+    /**
+     * Sums the squared distances from every point to its assigned centroid.
+     * @return The within-cluster sum of squares.
+     */
+    public double inertia() {
+
+        // local variables
+        double sum = 0.0;
+
+        for (int i = 0; i < this._n; i++) {
+            sum += this.squaredDistance(i, this._centroids, this._assignments[i]);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Assigns every point to its closest centroid, one block at a time, then adds the
+     * blocks' accumulators together in block order.
+     * @param blockSums per-block, per-cluster coordinate sums
+     * @param blockCounts per-block, per-cluster point counts
+     * @param sums receives the per-cluster coordinate sums, row-major
+     * @param counts receives the per-cluster point counts
+     */
+    void assignBlocks(double[][] blockSums, int[][] blockCounts, double[] sums, int[] counts) {
+
+        if (this._accelerated) {
+            this.halfDistances();
+        }
+
+        if (this._parallel) {
+            IntStream.range(0, blockSums.length).parallel().forEach(b -> this.assignBlock(b, blockSums[b], blockCounts[b]));
+        } else {
+            for (int b = 0; b < blockSums.length; b++) {
+                this.assignBlock(b, blockSums[b], blockCounts[b]);
+            }
+        }
+
+        // reduce in block order, so the sums never depend on thread timing
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(counts, 0);
+        for (int b = 0; b < blockSums.length; b++) {
+            for (int j = 0; j < sums.length; j++) {
+                sums[j] += blockSums[b][j];
+            }
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] += blockCounts[b][c];
+            }
+        }
+    }
+
+    /**
+     * Assigns one block of points, starting its accumulators from zero.
+     * @param b index of the block
+     * @param sums the block's per-cluster coordinate sums, row-major
+     * @param counts the block's per-cluster point counts
+     */
+    private void assignBlock(int b, double[] sums, int[] counts) {
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(counts, 0);
+        if (this._accelerated) {
+            this.assignBounded(b * BLOCK_SIZE, Math.min(this._n, (b + 1) * BLOCK_SIZE), sums, counts);
+        } else {
+            this.assign(b * BLOCK_SIZE, Math.min(this._n, (b + 1) * BLOCK_SIZE), sums, counts);
+        }
+    }
+
+    /**
+     * Assigns a range of points to their closest centroids, adding each point into
+     * its cluster's sum and count.
+     * @param from first point of the range
+     * @param to point just past the range
+     * @param sums per-cluster coordinate sums, row-major
+     * @param counts per-cluster point counts
+     */
+    void assign(int from, int to, double[] sums, int[] counts) {
+
+        // local variables
+        int closest = 0;
+        int base = 0;
+        double closestDist = 0.0;
+        double dist = 0.0;
+
+        for (int i = from; i < to; i++) {
+            closest = 0;
+            closestDist = this.squaredDistance(i, this._centroids, 0);
+
+            for (int c = 1; c < this._k; c++) {
+                dist = this.squaredDistance(i, this._centroids, c);
+
+                if (dist < closestDist) {
+                    closest = c;
+                    closestDist = dist;
+                }
+            }
+
+            this._assignments[i] = closest;
+
+            // accumulate on the way, so no second pass is needed for the update
+            base = closest * this._dims;
+            for (int d = 0; d < this._dims; d++) {
+                sums[base + d] += this._points[i * this._dims + d];
+            }
+            counts[closest]++;
+        }
+    }
+
+    /**
+     * Assigns a range of points to their closest centroids like assign, but skips
+     * points whose bounds show their assignment cannot change. A point that cannot be
+     * skipped gets the same full scan as assign, which also refreshes its bounds.
+     * @param from first point of the range
+     * @param to point just past the range
+     * @param sums per-cluster coordinate sums, row-major
+     * @param counts per-cluster point counts
+     */
+    private void assignBounded(int from, int to, double[] sums, int[] counts) {
+
+        // local variables
+        int closest = 0;
+        int base = 0;
+        double bound = 0.0;
+        double closestDist = 0.0;
+        double secondDist = 0.0;
+        double dist = 0.0;
+
+        for (int i = from; i < to; i++) {
+            closest = this._assignments[i];
+            bound = Math.max(this._half[closest], this._lower[i]);
+
+            // strictly inside the bound means every other centroid is strictly farther
+            if (!(this._upper[i] < bound)) {
+
+                // tighten the upper bound and try again
+                this._upper[i] = upper(Math.sqrt(this.squaredDistance(i, this._centroids, closest)));
+
+                if (!(this._upper[i] < bound)) {
+
+                    // full scan, lowest index wins ties just like assign
+                    closest = 0;
+                    closestDist = this.squaredDistance(i, this._centroids, 0);
+                    secondDist = Double.POSITIVE_INFINITY;
+
+                    for (int c = 1; c < this._k; c++) {
+                        dist = this.squaredDistance(i, this._centroids, c);
+
+                        if (dist < closestDist) {
+                            secondDist = closestDist;
+                            closest = c;
+                            closestDist = dist;
+                        } else if (dist < secondDist) {
+                            secondDist = dist;
+                        }
+                    }
+
+                    this._assignments[i] = closest;
+                    this._upper[i] = upper(Math.sqrt(closestDist));
+                    this._lower[i] = lower(Math.sqrt(secondDist));
+                }
+            }
+
+            // accumulate on the way, in point order just like assign
+            base = closest * this._dims;
+            for (int d = 0; d < this._dims; d++) {
+                sums[base + d] += this._points[i * this._dims + d];
+            }
+            counts[closest]++;
+        }
+    }
+
+    /**
+     * Forgets any bounds from earlier runs when running accelerated. An infinite
+     * upper bound forces a check of every point on the next assignment.
+     */
+    private void resetBounds() {
+        if (this._accelerated) {
+            this._upper = new double[this._n];
+            this._lower = new double[this._n];
+            this._half = new double[this._k];
+            this._moves = new double[this._k];
+            Arrays.fill(this._upper, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Works out half the distance from each centroid to its nearest other centroid.
+     * A point closer than that to its own centroid cannot be closer to any other.
+     */
+    private void halfDistances() {
+
+        // local variables
+        double nearest = 0.0;
+
+        for (int c = 0; c < this._k; c++) {
+            nearest = Double.POSITIVE_INFINITY;
+
+            for (int o = 0; o < this._k; o++) {
+                if (o != c) {
+                    nearest = Math.min(nearest, Distances.squared(this._centroids, c, this._centroids, o, this._dims));
+                }
+            }
+
+            this._half[c] = lower(0.5 * Math.sqrt(nearest));
+        }
+    }
+
+    /**
+     * Loosens every point's bounds by how far the centroids moved: the upper bound
+     * grows by its own centroid's move, the lower bound shrinks by the largest move
+     * of any other centroid.
+     */
+    private void moveBounds() {
+
+        // local variables
+        int largest = 0;
+        double secondMove = 0.0;
+
+        // find the two largest moves
+        for (int c = 1; c < this._k; c++) {
+            if (this._moves[c] > this._moves[largest]) {
+                largest = c;
+            }
+        }
+        for (int c = 0; c < this._k; c++) {
+            if (c != largest) {
+                secondMove = Math.max(secondMove, this._moves[c]);
+            }
+        }
+
+        for (int i = 0; i < this._n; i++) {
+            this._upper[i] = upper(this._upper[i] + this._moves[this._assignments[i]]);
+            this._lower[i] = Math.max(0.0, lower(this._lower[i]
+                    - ((this._assignments[i] == largest) ? secondMove : this._moves[largest])));
+        }
+    }
+
+    /**
+     * Widens a distance into a safe upper bound.
+     * @param distance the calculated distance
+     * @return A value no smaller than the exact distance.
+     */
+    private static double upper(double distance) {
+        return distance * (1 + BOUND_SLACK);
+    }
+
+    /**
+     * Narrows a distance into a safe lower bound.
+     * @param distance the calculated distance
+     * @return A value no larger than the exact distance.
+     */
+    private static double lower(double distance) {
+        return distance * (1 - BOUND_SLACK);
+    }
+
+    /**
+     * Moves each centroid to the mean of its cluster.
+     * @param sums per-cluster coordinate sums, row-major
+     * @param counts per-cluster point counts
+     * @return The total distance the centroids moved.
+     */
+    double update(double[] sums, int[] counts) {
+
+        // local variables
+        double movement = 0.0;
+        double moved = 0.0;
+        double next = 0.0;
+
+        for (int c = 0; c < this._k; c++) {
+
+            moved = 0.0;
+
+            // empty clusters stay where they are
+            if (counts[c] > 0) {
+                for (int d = 0; d < this._dims; d++) {
+                    next = sums[c * this._dims + d] / counts[c];
+                    moved += (next - this._centroids[c * this._dims + d]) * (next - this._centroids[c * this._dims + d]);
+                    this._centroids[c * this._dims + d] = next;
+                }
+            }
+
+            movement += Math.sqrt(moved);
+
+            if (this._accelerated) {
+                this._moves[c] = upper(Math.sqrt(moved));
+            }
+        }
+
+        // the bounds drift by at most how far the centroids moved
+        if (this._accelerated) {
+            this.moveBounds();
+        }
+
+        return movement;
+    }
+
+    /**
+     * Measures the squared distance from a point to a centroid.
+     * @param i index of the point
+     * @param centroids the centroids, row-major
+     * @param c index of the centroid
+     * @return The squared Euclidean distance.
+     */
+    double squaredDistance(int i, double[] centroids, int c) {
+        return Distances.squared(this._points, i, centroids, c, this._dims);
+    }
+}
@@ -0,0 +1,239 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mini-batch k-means (Sculley, 2010) over points stored row-major in one flat
+ * array (point i, dimension d at index i * dims + d).
+ *
+ * Each iteration draws a small random batch of points, assigns them to their
+ * nearest centroids, and pulls each centroid toward its batch points with a
+ * per-centroid learning rate of 1 / (points seen by that centroid so far), so
+ * centroids settle down as they see more data. Only the final assignment of every
+ * point touches the whole data set.
+ *
+ * Runs are fully determined by the seed.
+ *
+ * @author Nathan Minor
+ */
+public final class MiniBatchKMeans {
+
+    /** Default number of points per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** Default cap on the number of batches per run. */
+    public static final int DEFAULT_MAX_ITERATIONS = 500;
+
+    /** Default number of batches in a row that must move the centroids less than the tolerance. */
+    public static final int DEFAULT_PATIENCE = 10;
+
+    // internal class variables
+    private final double[] _points; // stores the points, row-major
+    private final int _dims;        // stores the number of dimensions per point
+    private final int _n;           // stores the number of points
+    private double[] _centroids;    // stores the centroids, row-major
+    private int[] _assignments;     // stores the cluster each point is assigned to, after a run
+    private int _k;                 // stores the number of clusters
+    private int _batchSize;         // stores the number of points per batch
+    private int _maxIterations;     // stores the cap on batches per run
+    private int _patience;          // stores the number of quiet batches in a row needed to stop
+    private int _iterations;        // stores the number of batches the last run took
+    private boolean _parallel;      // spread the final assignment across the common fork/join pool
+
+    /**
+     * Constructs a new clustering over a set of points.
+     * @param points the points, row-major (point i, dimension d at index i * dims + d)
+     * @param dims the number of dimensions per point
+     */
+    public MiniBatchKMeans(double[] points, int dims) {
+        this._points = points;
+        this._dims = dims;
+        this._n = points.length / dims;
+        this._centroids = new double[0];
+        this._assignments = new int[this._n];
+        this._k = 0;
+        this._batchSize = DEFAULT_BATCH_SIZE;
+        this._maxIterations = DEFAULT_MAX_ITERATIONS;
+        this._patience = DEFAULT_PATIENCE;
+        this._iterations = 0;
+        this._parallel = false;
+    }
+
+    /**
+     * "Set" method for the starting centroids.
+     * @param centroids the centroids, row-major, with the same number of dimensions as the points
+     */
+    public void setCentroids(double[] centroids) {
+        this._centroids = Arrays.copyOf(centroids, centroids.length);
+        this._k = centroids.length / this._dims;
+    }
+
+    /**
+     * "Set" method for the number of points per batch.
+     * @param batchSize the number of points drawn per batch
+     */
+    public void setBatchSize(int batchSize) {
+        this._batchSize = batchSize;
+    }
+
+    /**
+     * "Set" method for the cap on batches per run.
+     * @param maxIterations the most batches a run may take
+     */
+    public void setMaxIterations(int maxIterations) {
+        this._maxIterations = maxIterations;
+    }
+
+    /**
+     * "Set" method for the number of batches in a row that must move the centroids
+     * less than the tolerance before a run stops.
+     * @param patience the number of quiet batches needed
+     */
+    public void setPatience(int patience) {
+        this._patience = patience;
+    }
+
+    /**
+     * "Set" method for spreading the final assignment across the common fork/join
+     * pool. Results are the same either way.
+     * @param parallel true to run in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this._parallel = parallel;
+    }
+
+    /**
+     * "Get" method for retrieving the centroids.
+     * @return The centroids, row-major.
+     */
+    public double[] getCentroids() {
+        return this._centroids;
+    }
+
+    /**
+     * "Get" method for retrieving the cluster assignments made at the end of the last run.
+     * @return The cluster of each point.
+     */
+    public int[] getAssignments() {
+        return this._assignments;
+    }
+
+    /**
+     * "Get" method for retrieving the number of clusters.
+     * @return The number of clusters.
+     */
+    public int getK() {
+        return this._k;
+    }
+
+    /**
+     * "Get" method for retrieving the number of batches the last run took.
+     * @return The number of batches.
+     */
+    public int getIterations() {
+        return this._iterations;
+    }
+
+    /**
+     * Runs batches until the centroids move less than epsilon in total for several
+     * batches in a row (see setPatience) or the batch cap is hit, then assigns every
+     * point to its closest centroid.
+     * @param epsilon threshold on total centroid movement per batch for stopping
+     * @param seed seed for drawing the batches
+     * @return The number of batches run.
+     */
+    public int run(double epsilon, long seed) {
+
+        // local variables
+        Random r = new Random(seed);
+        int batchSize = Math.min(this._batchSize, this._n);
+        int[] batch = new int[batchSize];
+        int[] closest = new int[batchSize];
+        long[] seen = new long[this._k];
+        double[] start = new double[this._k * this._dims];
+        double movement = 0.0;
+        double moved = 0.0;
+        double diff = 0.0;
+        double rate = 0.0;
+        int quiet = 0;
+        int c = 0;
+        KMeans full = null;
+
+        this._iterations = 0;
+
+        // nothing to cluster around
+        if (this._k == 0 || this._n == 0) {
+            return 0;
+        }
+
+        while (quiet < this._patience && this._iterations < this._maxIterations) {
+            System.arraycopy(this._centroids, 0, start, 0, start.length);
+
+            // (1) draw a batch and assign it against the centroids as they stand
+            for (int b = 0; b < batchSize; b++) {
+                batch[b] = r.nextInt(this._n);
+                closest[b] = this.closest(batch[b]);
+            }
+
+            // (2) pull each centroid toward its batch points, more gently the more it has seen
+            for (int b = 0; b < batchSize; b++) {
+                c = closest[b];
+                seen[c]++;
+                rate = 1.0 / seen[c];
+
+                for (int d = 0; d < this._dims; d++) {
+                    this._centroids[c * this._dims + d] += rate
+                            * (this._points[batch[b] * this._dims + d] - this._centroids[c * this._dims + d]);
+                }
+            }
+
+            // (3) measure how far the centroids moved over the batch
+            movement = 0.0;
+            for (c = 0; c < this._k; c++) {
+                moved = 0.0;
+                for (int d = 0; d < this._dims; d++) {
+                    diff = this._centroids[c * this._dims + d] - start[c * this._dims + d];
+                    moved += diff * diff;
+                }
+                movement += Math.sqrt(moved);
+            }
+
+            quiet = (movement < epsilon) ? quiet + 1 : 0;
+            this._iterations++;
+        }
+
+        // (4) one full pass to assign every point
+        full = new KMeans(this._points, this._dims);
+        full.setCentroids(this._centroids);
+        full.setParallel(this._parallel);
+        full.assignAll();
+        this._assignments = full.getAssignments();
+
+        return this._iterations;
+    }
+
+    /**
+     * Finds the centroid closest to a point, lowest index winning ties.
+     * @param i index of the point
+     * @return The index of the closest centroid.
+     */
+    private int closest(int i) {
+
+        // local variables
+        int best = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+        double dist = 0.0;
+
+        for (int c = 0; c < this._k; c++) {
+            dist = Distances.squared(this._points, i, this._centroids, c, this._dims);
+
+            if (dist < bestDist) {
+                best = c;
+                bestDist = dist;
+            }
+        }
+
+        return best;
+    }
+}
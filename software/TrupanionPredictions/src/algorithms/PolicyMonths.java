@@ -0,0 +1,179 @@
+package algorithms;
+
+import data.ClaimStore;
+import data.EpochDays;
+
+import java.util.Arrays;
+
+/**
+ * Monthly payout buckets for a group of policies, built by walking their claims in
+ * policyId, then date, order the same way CalculatePolicySummaries does: a new
+ * bucket starts each time a claim lands in a later month than the current bucket,
+ * and paid claims are summed into the current bucket.
+ *
+ * Policies are held in ascending policyId order.
+ *
+ * @author Nathan Minor
+ */
+final class PolicyMonths {
+
+    // internal class variables
+    private final long[] _policyIds;    // stores the policyId of each policy
+    private final int[] _firstMonth;    // stores the month of each policy's first claim
+    private final int[] _bucketStart;   // stores where each policy's buckets start, with one extra entry at the end
+    private final int[] _bucketMonths;  // stores the month of each bucket
+    private final double[] _bucketSums; // stores the sum of payouts in each bucket
+    private final int _size;            // stores the number of policies
+
+    /**
+     * Constructs the buckets from already filled columns.
+     * @param policyIds policyId of each policy
+     * @param firstMonth month of each policy's first claim
+     * @param bucketStart where each policy's buckets start, with one extra entry at the end
+     * @param bucketMonths month of each bucket
+     * @param bucketSums sum of payouts in each bucket
+     * @param size number of policies
+     */
+    private PolicyMonths(long[] policyIds, int[] firstMonth, int[] bucketStart, int[] bucketMonths, double[] bucketSums, int size) {
+        this._size = size;
+        this._policyIds = policyIds;
+        this._firstMonth = firstMonth;
+        this._bucketStart = bucketStart;
+        this._bucketMonths = bucketMonths;
+        this._bucketSums = bucketSums;
+    }
+
+    /**
+     * Walks a store's claims in policyId, then date, order and buckets them.
+     * @param claims the claims to bucket
+     * @return The buckets for every policy in the store.
+     */
+    static PolicyMonths build(ClaimStore claims) {
+
+        // local variables
+        int[] order = claims.policyOrder();
+        long[] policyIds = new long[16];
+        int[] firstMonth = new int[16];
+        int[] bucketStart = new int[17];
+        int[] bucketMonths = new int[16];
+        double[] bucketSums = new double[16];
+        int policies = 0;
+        int buckets = 0;
+        int claim = 0;
+        int month = 0;
+        int cMonth = 0;
+        long cPolicyId = 0;
+        double monthlySum = 0.0;
+
+        for (int row = 0; row < order.length; row++) {
+            claim = order[row];
+            month = EpochDays.month(claims.getEpochDay(claim));
+
+            // close the current bucket when a new policy or a later month turns up
+            if (row > 0 && (cPolicyId != claims.getPolicyId(claim) || cMonth < month)) {
+                if (buckets == bucketMonths.length) {
+                    bucketMonths = Arrays.copyOf(bucketMonths, buckets * 2);
+                    bucketSums = Arrays.copyOf(bucketSums, buckets * 2);
+                }
+
+                bucketMonths[buckets] = cMonth;
+                bucketSums[buckets] = monthlySum;
+                buckets++;
+
+                cMonth = month;
+                monthlySum = 0;
+            }
+
+            // start a new policy
+            if (row == 0 || cPolicyId != claims.getPolicyId(claim)) {
+                if (policies == policyIds.length) {
+                    policyIds = Arrays.copyOf(policyIds, policies * 2);
+                    firstMonth = Arrays.copyOf(firstMonth, policies * 2);
+                    bucketStart = Arrays.copyOf(bucketStart, policies * 2 + 1);
+                }
+
+                cPolicyId = claims.getPolicyId(claim);
+                cMonth = month;
+                policyIds[policies] = cPolicyId;
+                firstMonth[policies] = month;
+                bucketStart[policies] = buckets;
+                policies++;
+            }
+
+            // only paid claims count toward the sum
+            if (claims.getPaidAmount(claim) > 0) {
+                monthlySum += claims.getPaidAmount(claim);
+            }
+        }
+
+        // close the final bucket
+        if (order.length > 0) {
+            if (buckets == bucketMonths.length) {
+                bucketMonths = Arrays.copyOf(bucketMonths, buckets + 1);
+                bucketSums = Arrays.copyOf(bucketSums, buckets + 1);
+            }
+
+            bucketMonths[buckets] = cMonth;
+            bucketSums[buckets] = monthlySum;
+            buckets++;
+        }
+        bucketStart[policies] = buckets;
+
+        return new PolicyMonths(policyIds, firstMonth, bucketStart, bucketMonths, bucketSums, policies);
+    }
+
+    /**
+     * "Get" method for retrieving the number of policies.
+     * @return The number of policies.
+     */
+    int size() {
+        return this._size;
+    }
+
+    /**
+     * "Get" method for retrieving the policyId of a policy.
+     * @param i index of the policy
+     * @return The policyId.
+     */
+    long getPolicyId(int i) {
+        return this._policyIds[i];
+    }
+
+    /**
+     * "Get" method for retrieving the month of a policy's first claim.
+     * @param i index of the policy
+     * @return The month of the first claim (0 to 11).
+     */
+    int getFirstMonth(int i) {
+        return this._firstMonth[i];
+    }
+
+    /**
+     * "Get" method for retrieving the number of buckets a policy has.
+     * @param i index of the policy
+     * @return The number of buckets.
+     */
+    int getBucketCount(int i) {
+        return this._bucketStart[i + 1] - this._bucketStart[i];
+    }
+
+    /**
+     * "Get" method for retrieving the month of one of a policy's buckets.
+     * @param i index of the policy
+     * @param b index of the bucket within the policy
+     * @return The month of the bucket (0 to 11).
+     */
+    int getBucketMonth(int i, int b) {
+        return this._bucketMonths[this._bucketStart[i] + b];
+    }
+
+    /**
+     * "Get" method for retrieving the sum of payouts in one of a policy's buckets.
+     * @param i index of the policy
+     * @param b index of the bucket within the policy
+     * @return The sum of payouts in the bucket.
+     */
+    double getBucketSum(int i, int b) {
+        return this._bucketSums[this._bucketStart[i] + b];
+    }
+}
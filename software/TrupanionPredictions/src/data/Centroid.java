@@ -5,8 +5,6 @@
  */
 package data;
 
-import java.text.DecimalFormat;
-
 /**
  * This class encapsulates the data structure and functionality behind a centriod of a cluster.
  * 
@@ -19,7 +17,6 @@ public class Centroid {
     // private local fields
     private double _x;
     private double _y;
-    private DecimalFormat _df;
     
     /**
      * Constructs a blank centroid with coordinates (0.0, 0.0).
@@ -27,7 +24,6 @@ public class Centroid {
     public Centroid() {
         this._x = 0.0;
         this._y = 0.0;
-        this._df = new DecimalFormat("#.##");
     }
     
     /**
@@ -40,7 +36,6 @@ public class Centroid {
         // assign initial values appropriately
         this._x = x;
         this._y = y;
-        this._df = new DecimalFormat("#.##");
     }
     
     /**
@@ -68,7 +63,7 @@ public class Centroid {
         double d = 0.0;
         
         try {
-            d = Double.valueOf(this._df.format(Math.sqrt(Math.pow((this._x - p.getX()), 2.0) + Math.pow((this._y - p.getY()), 2.0))));
+            d = Math.sqrt(squaredDistance(this._x, this._y, p.getX(), p.getY()));
         } catch (Exception ex) {
             d = Double.NaN;
             System.err.print(ex.getMessage());
@@ -77,6 +72,31 @@ public class Centroid {
         return d;
     }
     
+    /**
+     * Returns the squared distance to another centroid in 2D Euclidean space. Cheaper
+     * than distanceTo and ranks centroids the same way, so use it for comparisons.
+     * @param p The centroid to measure the distance to, relative to this centroid.
+     * @return The squared Euclidean distance between this centroid and another centroid, p.
+     */
+    public double squaredDistanceTo(Centroid p) {
+        return squaredDistance(this._x, this._y, p._x, p._y);
+    }
+    
+    /**
+     * Returns the squared distance between two points in 2D Euclidean space.
+     * @param x1 First coordinate of the first point.
+     * @param y1 Second coordinate of the first point.
+     * @param x2 First coordinate of the second point.
+     * @param y2 Second coordinate of the second point.
+     * @return The squared Euclidean distance between the two points.
+     */
+    public static double squaredDistance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        
+        return dx * dx + dy * dy;
+    }
+    
     /**
      * Overridden method used for determining if two centroids are equal.
      * @param o The centroid to compare with.
@@ -0,0 +1,63 @@
+package data;
+
+/**
+ * The centroids of a clustering, shared by every payout summary in it. Each
+ * summary keeps only the int id of its cluster, instead of a centroid object of
+ * its own.
+ *
+ * A centroid is stored as the two values predictions are made from: the average
+ * time between payouts (x) and the mean payout (y), column by column.
+ *
+ * @author Nathan Minor
+ */
+public final class CentroidTable {
+
+    // internal class variables
+    private final double[] _x; // stores the average time between payouts, per cluster
+    private final double[] _y; // stores the mean payout, per cluster
+
+    /**
+     * Constructs a table, taking ownership of the arrays.
+     * @param x average time between payouts of each cluster
+     * @param y mean payout of each cluster
+     */
+    public CentroidTable(double[] x, double[] y) {
+        this._x = x;
+        this._y = y;
+    }
+
+    /**
+     * "Get" method for retrieving the number of clusters.
+     * @return The number of centroids held.
+     */
+    public int size() {
+        return this._x.length;
+    }
+
+    /**
+     * "Get" method for retrieving the first coordinate of a centroid.
+     * @param c the cluster id
+     * @return The average time between payouts.
+     */
+    public double getX(int c) {
+        return this._x[c];
+    }
+
+    /**
+     * "Get" method for retrieving the second coordinate of a centroid.
+     * @param c the cluster id
+     * @return The mean payout.
+     */
+    public double getY(int c) {
+        return this._y[c];
+    }
+
+    /**
+     * Builds a centroid object for a cluster.
+     * @param c the cluster id
+     * @return A new centroid holding the cluster's coordinates.
+     */
+    public Centroid getCentroid(int c) {
+        return new Centroid(this._x[c], this._y[c]);
+    }
+}
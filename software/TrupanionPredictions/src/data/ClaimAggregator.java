@@ -0,0 +1,224 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Folds claims into per-policy, per-month payout accumulators as they are read, so
+ * summaries can be built without holding every claim in memory. Memory use grows
+ * with the number of policies rather than the number of claims.
+ *
+ * Months are numbered 0 (January) to 11 (December), matching Calendar.MONTH.
+ *
+ * @author Nathan Minor
+ */
+public final class ClaimAggregator implements ClaimSink {
+
+    /** Number of month buckets kept per policy. */
+    public static final int MONTHS = 12;
+
+    // initial number of policy slots
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // internal class variables
+    private final PolicyIndex _slots; // maps each policyId to its slot
+    private final Calendar _cal;    // used to parse month numbers out of claim dates
+    private int[] _months;          // stores a bit per month with any claims, per slot
+    private double[] _paidSums;     // stores the sum of payouts, per slot per month
+    private int[] _paidCounts;      // stores the number of paid claims, per slot per month
+    private double[] _claimedSums;  // stores the sum of amounts claimed, per slot
+    private int[] _claimCounts;     // stores the number of claims, paid or not, per slot
+
+    /**
+     * Constructs an empty aggregator.
+     */
+    public ClaimAggregator() {
+        this._slots = new PolicyIndex();
+        this._cal = Calendar.getInstance();
+        this._months = new int[INITIAL_CAPACITY];
+        this._paidSums = new double[INITIAL_CAPACITY * MONTHS];
+        this._paidCounts = new int[INITIAL_CAPACITY * MONTHS];
+        this._claimedSums = new double[INITIAL_CAPACITY];
+        this._claimCounts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a parsed claim to its policy's month bucket.
+     * @param policyId policy number
+     * @param epochDay date of claim filing, as days since 1970-01-01
+     * @param claimed amount claimed
+     * @param paid amount paid out on claim
+     */
+    @Override
+    public void accept(long policyId, int epochDay, double claimed, double paid) {
+        this.add(policyId, EpochDays.month(epochDay), claimed, paid);
+    }
+
+    /**
+     * Adds a claim row-vector object to its policy's month bucket.
+     * @param claim the claim to add
+     */
+    public void add(ClaimLevel claim) {
+        this._cal.setTime(claim.getClaimDate());
+        this.add(claim.getPolicyId(), this._cal.get(Calendar.MONTH), claim.getClaimedAmount(), claim.getPaidAmount());
+    }
+
+    /**
+     * Adds the buckets of another aggregator into this one.
+     * @param other the aggregator to merge in
+     */
+    public void merge(ClaimAggregator other) {
+
+        // local variables
+        int slot = 0;
+
+        for (int s = 0; s < other.size(); s++) {
+            slot = this.slotFor(other.getPolicyId(s));
+            this._months[slot] |= other._months[s];
+            this._claimedSums[slot] += other._claimedSums[s];
+            this._claimCounts[slot] += other._claimCounts[s];
+
+            for (int m = 0; m < MONTHS; m++) {
+                this._paidSums[slot * MONTHS + m] += other._paidSums[s * MONTHS + m];
+                this._paidCounts[slot * MONTHS + m] += other._paidCounts[s * MONTHS + m];
+            }
+        }
+    }
+
+    /**
+     * "Get" method for retrieving the number of policies seen.
+     * @return The number of policy slots in use.
+     */
+    public int size() {
+        return this._slots.size();
+    }
+
+    /**
+     * "Get" method for retrieving the policyId held by a slot.
+     * @param slot the slot (0 to size - 1)
+     * @return The policyId.
+     */
+    public long getPolicyId(int slot) {
+        return this._slots.getPolicyId(slot);
+    }
+
+    /**
+     * Finds the slot holding a policy.
+     * @param policyId policy number
+     * @return The slot, or -1 when the policy has not been seen.
+     */
+    public int slotOf(long policyId) {
+        return this._slots.slotOf(policyId);
+    }
+
+    /**
+     * "Get" method for retrieving the months that had any claims for a policy.
+     * @param slot the slot (0 to size - 1)
+     * @return A bit mask with bit m set when month m had at least one claim.
+     */
+    public int getMonths(int slot) {
+        return this._months[slot];
+    }
+
+    /**
+     * "Get" method for retrieving the sum of payouts for a policy during a month.
+     * @param slot the slot (0 to size - 1)
+     * @param month the month (0 to 11)
+     * @return The sum of all payouts for the policy during the month.
+     */
+    public double getPaidSum(int slot, int month) {
+        return this._paidSums[slot * MONTHS + month];
+    }
+
+    /**
+     * "Get" method for retrieving the number of paid claims for a policy during a month.
+     * @param slot the slot (0 to size - 1)
+     * @param month the month (0 to 11)
+     * @return The number of claims paid out for the policy during the month.
+     */
+    public int getPaidCount(int slot, int month) {
+        return this._paidCounts[slot * MONTHS + month];
+    }
+
+    /**
+     * "Get" method for retrieving the sum of amounts claimed for a policy, over all months.
+     * @param slot the slot (0 to size - 1)
+     * @return The sum of all amounts claimed for the policy.
+     */
+    public double getClaimedSum(int slot) {
+        return this._claimedSums[slot];
+    }
+
+    /**
+     * "Get" method for retrieving the number of claims for a policy, paid or not, over all months.
+     * @param slot the slot (0 to size - 1)
+     * @return The number of claims for the policy.
+     */
+    public int getClaimCount(int slot) {
+        return this._claimCounts[slot];
+    }
+
+    /**
+     * Orders the slots by policyId.
+     * @return Slots sorted by ascending policyId.
+     */
+    public int[] sortedSlots() {
+
+        // only the policy keys need sorting, never the claims
+        return this._slots.sortedSlots();
+    }
+
+    /**
+     * Adds a payout to a policy's month bucket, only paid claims count toward the sums.
+     * @param policyId policy number
+     * @param month the month (0 to 11)
+     * @param claimed amount claimed
+     * @param paid amount paid out on claim
+     */
+    private void add(long policyId, int month, double claimed, double paid) {
+
+        // local variables
+        int slot = this.slotFor(policyId);
+
+        // every claim marks its month and counts toward the claim totals, paid or not
+        this._months[slot] |= (1 << month);
+        this._claimedSums[slot] += claimed;
+        this._claimCounts[slot]++;
+
+        if (paid > 0) {
+            this._paidCounts[slot * MONTHS + month]++;
+            this._paidSums[slot * MONTHS + month] += paid;
+        }
+    }
+
+    /**
+     * Finds the slot for a policy, adding a new slot the first time a policy is seen.
+     * @param policyId policy number
+     * @return The slot for the policy.
+     */
+    private int slotFor(long policyId) {
+
+        // local variables
+        int slot = this._slots.add(policyId);
+
+        // grow the columns when a new slot runs past them
+        if (slot == this._months.length) {
+            this.grow();
+        }
+
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = this._months.length * 2;
+
+        this._months = Arrays.copyOf(this._months, capacity);
+        this._paidSums = Arrays.copyOf(this._paidSums, capacity * MONTHS);
+        this._paidCounts = Arrays.copyOf(this._paidCounts, capacity * MONTHS);
+        this._claimedSums = Arrays.copyOf(this._claimedSums, capacity);
+        this._claimCounts = Arrays.copyOf(this._claimCounts, capacity);
+    }
+}
@@ -0,0 +1,29 @@
+package data;
+
+import java.util.List;
+
+/**
+ * Collects parsed claims into a list of ClaimLevel row-vector objects.
+ *
+ * @author Nathan Minor
+ */
+final class ClaimListSink implements ClaimSink {
+
+    // internal class variables
+    private final List<ClaimLevel> _claims; // the collected claims
+    private final DateCache _dates;         // builds the claim dates
+
+    /**
+     * Constructs a sink that appends to an existing list.
+     * @param claims list the claims are appended to
+     */
+    ClaimListSink(List<ClaimLevel> claims) {
+        this._claims = claims;
+        this._dates = new DateCache();
+    }
+
+    @Override
+    public void accept(long policyId, int epochDay, double claimed, double paid) {
+        this._claims.add(new ClaimLevel(policyId, this._dates.toDate(epochDay), claimed, paid));
+    }
+}
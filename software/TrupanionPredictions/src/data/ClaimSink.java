@@ -0,0 +1,19 @@
+package data;
+
+/**
+ * Receives claim-level rows as they are parsed, one call per claim, so callers can
+ * decide whether claims are kept as objects or folded straight into summaries.
+ *
+ * @author Nathan Minor
+ */
+interface ClaimSink {
+
+    /**
+     * Accepts the next parsed claim.
+     * @param policyId policy number
+     * @param epochDay date of claim filing, as days since 1970-01-01
+     * @param claimed amount claimed
+     * @param paid amount paid out on claim
+     */
+    void accept(long policyId, int epochDay, double claimed, double paid);
+}
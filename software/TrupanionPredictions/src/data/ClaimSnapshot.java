@@ -0,0 +1,267 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the compact binary snapshot of parsed claim-level data.
+ *
+ * The snapshot is a fixed header followed by one column per claim field:
+ * <pre>
+ *   int    magic ("TCLS")
+ *   int    format version
+ *   long   size of the CSV file the claims were parsed from
+ *   long   last modified time of that CSV file
+ *   int    number of claims, n
+ *   long[n]   policyId
+ *   int[n]    claim date, as days since 1970-01-01
+ *   double[n] claimed amount
+ *   double[n] paid amount
+ * </pre>
+ * All values are little-endian.
+ *
+ * @author Nathan Minor
+ */
+final class ClaimSnapshot {
+
+    // identifies snapshot files and their layout
+    private static final int MAGIC = 0x54434C53;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    // bytes per claim across all columns
+    private static final int ROW_BYTES = 8 + 4 + 8 + 8;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private ClaimSnapshot() {
+    }
+
+    /**
+     * Reloads claims from a snapshot with a single bulk read.
+     * @param filePath absolute path of the snapshot file
+     * @param csvSize current size of the CSV file
+     * @param csvModified current last modified time of the CSV file
+     * @return The claims in their original file order, or null when there is no usable snapshot for the CSV file.
+     */
+    static ClaimStore read(String filePath, long csvSize, long csvModified) {
+
+        // local variables
+        ByteBuffer buf = null;
+        long[] policyIds = null;
+        int[] epochDays = null;
+        double[] claimed = null;
+        double[] paid = null;
+        int n = 0;
+
+        // a missing snapshot is the normal first run, not an error
+        if (!new File(filePath).isFile()) {
+            return null;
+        }
+
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+
+            // snapshots too big for one buffer are never written
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            // pull the whole file in at once
+            buf = ByteBuffer.allocate((int) ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && ch.read(buf) > 0) {
+                // keep reading until the buffer is full
+            }
+            buf.flip();
+
+            // only use the snapshot when it was taken from this exact csv file
+            n = claimCount(buf, csvSize, csvModified);
+            if (n < 0) {
+                return null;
+            }
+
+            // copy out the columns
+            policyIds = new long[n];
+            epochDays = new int[n];
+            claimed = new double[n];
+            paid = new double[n];
+
+            buf.asLongBuffer().get(policyIds);
+            buf.position(buf.position() + n * 8);
+            buf.asIntBuffer().get(epochDays);
+            buf.position(buf.position() + n * 4);
+            buf.asDoubleBuffer().get(claimed);
+            buf.position(buf.position() + n * 8);
+            buf.asDoubleBuffer().get(paid);
+
+        } catch (IOException ex) {
+            // an unreadable snapshot just means parsing the csv file again
+            System.err.println(ex.getMessage());
+            return null;
+        }
+
+        return new ClaimStore(policyIds, epochDays, claimed, paid, n);
+    }
+
+    /**
+     * Feeds the claims of a snapshot straight into a sink, in their original file
+     * order, without copying the columns out. The file is memory-mapped and each
+     * claim is read out of its four columns as it is fed, so no per-claim storage is
+     * needed on the heap.
+     * @param filePath absolute path of the snapshot file
+     * @param csvSize current size of the CSV file
+     * @param csvModified current last modified time of the CSV file
+     * @param out sink the claims are fed to
+     * @return true when the claims were fed, false when there is no usable snapshot for the CSV file (nothing is fed).
+     */
+    static boolean feed(String filePath, long csvSize, long csvModified, ClaimSink out) {
+
+        // local variables
+        ByteBuffer buf = null;
+        int n = 0;
+        int policyIds = 0; // offsets of the columns
+        int epochDays = 0;
+        int claimed = 0;
+        int paid = 0;
+
+        // a missing snapshot is the normal first run, not an error
+        if (!new File(filePath).isFile()) {
+            return false;
+        }
+
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+
+            // snapshots too big for one buffer are never written
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+            // only use the snapshot when it was taken from this exact csv file
+            n = claimCount(buf, csvSize, csvModified);
+            if (n < 0) {
+                return false;
+            }
+
+            policyIds = HEADER_BYTES;
+            epochDays = policyIds + n * 8;
+            claimed = epochDays + n * 4;
+            paid = claimed + n * 8;
+
+            // read across the columns one claim at a time
+            for (int i = 0; i < n; i++) {
+                out.accept(buf.getLong(policyIds + i * 8), buf.getInt(epochDays + i * 4),
+                        buf.getDouble(claimed + i * 8), buf.getDouble(paid + i * 8));
+            }
+
+        } catch (IOException ex) {
+            // an unreadable snapshot just means parsing the csv file again
+            System.err.println(ex.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the header of a snapshot against the CSV file, leaving the buffer
+     * positioned at the first column.
+     * @param buf the snapshot, positioned at its start
+     * @param csvSize current size of the CSV file
+     * @param csvModified current last modified time of the CSV file
+     * @return The number of claims, or -1 when the snapshot does not match the CSV file or is damaged.
+     */
+    private static int claimCount(ByteBuffer buf, long csvSize, long csvModified) {
+
+        // local variables
+        int n = 0;
+
+        if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                || buf.getLong() != csvSize || buf.getLong() != csvModified) {
+            return -1;
+        }
+
+        n = buf.getInt();
+        if (n < 0 || buf.remaining() != (long) n * ROW_BYTES) {
+            return -1;
+        }
+
+        return n;
+    }
+
+    /**
+     * Writes claims to a snapshot, replacing any older snapshot atomically.
+     * @param filePath absolute path of the snapshot file
+     * @param csvSize size of the CSV file the claims were parsed from
+     * @param csvModified last modified time of the CSV file the claims were parsed from
+     * @param claims the parsed claims
+     * @throws IOException when the snapshot cannot be written
+     */
+    static void write(String filePath, long csvSize, long csvModified, ClaimStore claims) throws IOException {
+
+        // local variables
+        int n = claims.size();
+        long bytes = HEADER_BYTES + (long) n * ROW_BYTES;
+        Path target = Paths.get(filePath);
+        Path tmp = Paths.get(filePath + ".tmp");
+        ByteBuffer buf = null;
+
+        // too large to reload with one buffer, so not worth writing
+        if (bytes > Integer.MAX_VALUE) {
+            return;
+        }
+
+        buf = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        // header
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putLong(csvSize);
+        buf.putLong(csvModified);
+        buf.putInt(n);
+
+        // one column at a time
+        for (int i = 0; i < n; i++) {
+            buf.putLong(claims.getPolicyId(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putInt(claims.getEpochDay(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putDouble(claims.getClaimedAmount(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putDouble(claims.getPaidAmount(i));
+        }
+        buf.flip();
+
+        // write next to the target, then swap it in so readers never see a partial file
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // leave nothing half written behind
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException cleanup) {
+                ex.addSuppressed(cleanup);
+            }
+            throw ex;
+        }
+    }
+}
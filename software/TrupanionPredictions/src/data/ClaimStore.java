@@ -0,0 +1,445 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Column oriented store for raw claim-level data: one primitive array per field
+ * instead of one ClaimLevel (and one Date) object per claim.
+ *
+ * Claim dates are held as days since 1970-01-01, see EpochDays.
+ *
+ * @author Nathan Minor
+ */
+public final class ClaimStore implements ClaimSink {
+
+    // initial number of rows
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // runs shorter than this are insertion sorted
+    private static final int INSERTION_SORT_RUN = 16;
+
+    // internal class variables for storing data parsed out of CSV file
+    private long[] _policyIds;   // stores the policyId associated with each claim
+    private int[] _epochDays;    // stores the date each claim was made, as days since 1970-01-01
+    private double[] _claimed;   // stores the amount claimed on said date
+    private double[] _paid;      // stores the amount paid out to customer
+    private int _size;           // stores the number of claims held
+    private Calendar _cal;       // used to break ClaimLevel dates into days, created on first use
+
+    /**
+     * Default constructor to create an empty store.
+     */
+    public ClaimStore() {
+        this._policyIds = new long[INITIAL_CAPACITY];
+        this._epochDays = new int[INITIAL_CAPACITY];
+        this._claimed = new double[INITIAL_CAPACITY];
+        this._paid = new double[INITIAL_CAPACITY];
+        this._size = 0;
+        this._cal = null;
+    }
+
+    /**
+     * Constructor wrapping already filled columns, the store takes ownership of the arrays.
+     * @param policyIds policy numbers
+     * @param epochDays claim dates, as days since 1970-01-01
+     * @param claimed amounts claimed
+     * @param paid amounts paid out
+     * @param size number of claims held in the arrays
+     */
+    ClaimStore(long[] policyIds, int[] epochDays, double[] claimed, double[] paid, int size) {
+        this._policyIds = policyIds;
+        this._epochDays = epochDays;
+        this._claimed = claimed;
+        this._paid = paid;
+        this._size = size;
+        this._cal = null;
+    }
+
+    /**
+     * Builds a store holding the same claims as a list of row-vector objects.
+     * @param claims the claims to copy
+     * @return A new store with the claims in list order.
+     */
+    public static ClaimStore fromClaims(List<ClaimLevel> claims) {
+        ClaimStore store = new ClaimStore();
+
+        store.ensureCapacity(claims.size());
+        for (ClaimLevel c : claims) {
+            store.add(c);
+        }
+
+        return store;
+    }
+
+    /**
+     * Appends a parsed claim.
+     * @param policyId policy number
+     * @param epochDay date of claim filing, as days since 1970-01-01
+     * @param claimed amount claimed
+     * @param paid amount paid out on claim
+     */
+    @Override
+    public void accept(long policyId, int epochDay, double claimed, double paid) {
+
+        // grow the columns when full
+        if (this._size == this._policyIds.length) {
+            this.ensureCapacity(Math.max(INITIAL_CAPACITY, this._size * 2));
+        }
+
+        this._policyIds[this._size] = policyId;
+        this._epochDays[this._size] = epochDay;
+        this._claimed[this._size] = claimed;
+        this._paid[this._size] = paid;
+        this._size++;
+    }
+
+    /**
+     * Appends a claim row-vector object.
+     * @param claim the claim to add
+     */
+    public void add(ClaimLevel claim) {
+
+        // only needed when claims come in as objects
+        if (this._cal == null) {
+            this._cal = Calendar.getInstance();
+        }
+
+        this.accept(
+                claim.getPolicyId(),
+                EpochDays.fromDate(claim.getClaimDate(), this._cal),
+                claim.getClaimedAmount(),
+                claim.getPaidAmount());
+    }
+
+    /**
+     * Appends every claim held by another store, in its order.
+     * @param other the store to copy from
+     */
+    public void append(ClaimStore other) {
+        this.ensureCapacity(this._size + other._size);
+
+        System.arraycopy(other._policyIds, 0, this._policyIds, this._size, other._size);
+        System.arraycopy(other._epochDays, 0, this._epochDays, this._size, other._size);
+        System.arraycopy(other._claimed, 0, this._claimed, this._size, other._size);
+        System.arraycopy(other._paid, 0, this._paid, this._size, other._size);
+        this._size += other._size;
+    }
+
+    /**
+     * Feeds every claim to a sink, in store order.
+     * @param out the sink to feed
+     */
+    void feed(ClaimSink out) {
+        for (int i = 0; i < this._size; i++) {
+            out.accept(this._policyIds[i], this._epochDays[i], this._claimed[i], this._paid[i]);
+        }
+    }
+
+    /**
+     * Folds every claim into per-policy, per-month accumulators.
+     * @return A new aggregator holding the claims.
+     */
+    public ClaimAggregator aggregate() {
+
+        // local variables
+        ClaimAggregator aggregate = new ClaimAggregator();
+
+        this.feed(aggregate);
+
+        return aggregate;
+    }
+
+    /**
+     * "Get" method for retrieving the number of claims held.
+     * @return The number of claims.
+     */
+    public int size() {
+        return this._size;
+    }
+
+    /**
+     * "Get" method for retrieving the policyId of a claim.
+     * @param i index of the claim
+     * @return Policy Id associated with the claim.
+     */
+    public long getPolicyId(int i) {
+        return this._policyIds[i];
+    }
+
+    /**
+     * "Get" method for retrieving the date a claim was filed.
+     * @param i index of the claim
+     * @return Date the claim was filed, as days since 1970-01-01.
+     */
+    public int getEpochDay(int i) {
+        return this._epochDays[i];
+    }
+
+    /**
+     * "Get" method for retrieving the amount claimed.
+     * @param i index of the claim
+     * @return The dollar amount claimed.
+     */
+    public double getClaimedAmount(int i) {
+        return this._claimed[i];
+    }
+
+    /**
+     * "Get" method for retrieving the amount paid.
+     * @param i index of the claim
+     * @return The amount paid out against the claim.
+     */
+    public double getPaidAmount(int i) {
+        return this._paid[i];
+    }
+
+    /**
+     * Builds a list of row-vector objects holding the same claims, in store order.
+     * @return A new list of claims.
+     */
+    public List<ClaimLevel> toClaims() {
+        List<ClaimLevel> claims = new ArrayList<>(this._size);
+        ClaimListSink sink = new ClaimListSink(claims);
+
+        this.feed(sink);
+
+        return claims;
+    }
+
+    /**
+     * Sorts the claims by policyId, then by date. The sort is stable, so claims on the
+     * same policy and day keep their relative order, just like Collections.sort on a
+     * list of ClaimLevel objects. The order comes from policyOrder, and the columns
+     * are permuted once at the end.
+     */
+    public void sort() {
+
+        // local variables
+        int[] idx = null;
+        long[] policyIds = null;
+        int[] epochDays = null;
+        double[] claimed = null;
+        double[] paid = null;
+
+        // nothing to do for data that is already in order
+        if (this.isSorted()) {
+            return;
+        }
+
+        idx = this.policyOrder();
+
+        // permute each column into sorted order
+        policyIds = new long[this._size];
+        epochDays = new int[this._size];
+        claimed = new double[this._size];
+        paid = new double[this._size];
+
+        for (int i = 0; i < this._size; i++) {
+            policyIds[i] = this._policyIds[idx[i]];
+            epochDays[i] = this._epochDays[idx[i]];
+            claimed[i] = this._claimed[idx[i]];
+            paid[i] = this._paid[idx[i]];
+        }
+
+        this._policyIds = policyIds;
+        this._epochDays = epochDays;
+        this._claimed = claimed;
+        this._paid = paid;
+    }
+
+    /**
+     * Works out the order of the claims by policyId, then by date, without sorting the
+     * claims as a whole. Claims are grouped by policy through a hash index, the groups
+     * are laid out by policyId (only the policy keys get sorted), and each group, which
+     * is just one policy's claims, is sorted by date. Claims on the same policy and day
+     * keep their relative order, matching sort().
+     * @return Claim indices in policyId, then date, order.
+     */
+    public int[] policyOrder() {
+
+        // local variables
+        PolicyIndex index = new PolicyIndex();
+        int[] slots = new int[this._size];
+        int[] starts = null;
+        int[] rank = null;
+        int[] sorted = null;
+        int[] idx = new int[this._size];
+        int[] tmp = null;
+
+        // group the claims by policy
+        for (int i = 0; i < this._size; i++) {
+            slots[i] = index.add(this._policyIds[i]);
+        }
+
+        // rank each policy slot by policyId
+        sorted = index.sortedSlots();
+        rank = new int[sorted.length];
+        for (int r = 0; r < sorted.length; r++) {
+            rank[sorted[r]] = r;
+        }
+
+        // count the claims per policy, then turn the counts into group start positions
+        starts = new int[sorted.length + 1];
+        for (int i = 0; i < this._size; i++) {
+            starts[rank[slots[i]] + 1]++;
+        }
+        for (int r = 0; r < sorted.length; r++) {
+            starts[r + 1] += starts[r];
+        }
+
+        // lay the claims out group by group, in their original order within each group
+        for (int i = 0; i < this._size; i++) {
+            slots[i] = starts[rank[slots[i]]]++;
+            idx[slots[i]] = i;
+        }
+
+        // starts[r] now marks the end of group r, sort each group by date
+        tmp = new int[this._size];
+        for (int r = 0; r < sorted.length; r++) {
+            this.mergeSort(idx, tmp, (r == 0) ? 0 : starts[r - 1], starts[r]);
+        }
+
+        return idx;
+    }
+
+    /**
+     * Splits the claims into stores that each hold every claim for a subset of the
+     * policies, chosen by hashing the policyId. Claims keep their original relative
+     * order within each store.
+     * @param parts the number of stores to split into
+     * @return The stores, one per part (some may be empty).
+     */
+    public ClaimStore[] partitionByPolicy(int parts) {
+
+        // local variables
+        int[] part = new int[this._size];
+        int[] counts = new int[parts];
+        ClaimStore[] stores = new ClaimStore[parts];
+
+        // work out which part each claim goes to, and how big each part will be
+        for (int i = 0; i < this._size; i++) {
+            part[i] = (int) (((PolicyIndex.hash(this._policyIds[i]) & 0xFFFFFFFFL) * parts) >>> 32);
+            counts[part[i]]++;
+        }
+
+        // size each store exactly
+        for (int p = 0; p < parts; p++) {
+            stores[p] = new ClaimStore(
+                    new long[counts[p]],
+                    new int[counts[p]],
+                    new double[counts[p]],
+                    new double[counts[p]],
+                    0);
+        }
+
+        // copy each claim over, in order
+        for (int i = 0; i < this._size; i++) {
+            stores[part[i]].accept(this._policyIds[i], this._epochDays[i], this._claimed[i], this._paid[i]);
+        }
+
+        return stores;
+    }
+
+    /**
+     * Determines if the claims are already ordered by policyId, then by date.
+     * @return Whether or not the store is sorted.
+     */
+    private boolean isSorted() {
+        for (int i = 1; i < this._size; i++) {
+            if (this.compare(i - 1, i) > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compares two claims by policyId, then by date.
+     * @param a index of the first claim
+     * @param b index of the second claim
+     * @return 0 = equal, -1 = less than, 1 = greater than
+     */
+    private int compare(int a, int b) {
+        int lastCompare = Long.compare(this._policyIds[a], this._policyIds[b]);
+
+        return (lastCompare != 0 ? lastCompare : Integer.compare(this._epochDays[a], this._epochDays[b]));
+    }
+
+    /**
+     * Stable merge sort of a range of the index array.
+     * @param idx claim indices being sorted
+     * @param tmp scratch space the same size as idx
+     * @param from first position of the range
+     * @param to position just past the range
+     */
+    private void mergeSort(int[] idx, int[] tmp, int from, int to) {
+
+        // local variables
+        int mid = 0;
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        int v = 0;
+
+        // insertion sort short runs
+        if (to - from <= INSERTION_SORT_RUN) {
+            for (i = from + 1; i < to; i++) {
+                v = idx[i];
+
+                for (j = i; j > from && this.compare(idx[j - 1], v) > 0; j--) {
+                    idx[j] = idx[j - 1];
+                }
+
+                idx[j] = v;
+            }
+
+            return;
+        }
+
+        mid = (from + to) >>> 1;
+        this.mergeSort(idx, tmp, from, mid);
+        this.mergeSort(idx, tmp, mid, to);
+
+        // the halves are already in order
+        if (this.compare(idx[mid - 1], idx[mid]) <= 0) {
+            return;
+        }
+
+        // merge, taking from the left half on ties to stay stable
+        System.arraycopy(idx, from, tmp, from, to - from);
+        i = from;
+        j = mid;
+        k = from;
+
+        while (i < mid && j < to) {
+            idx[k++] = (this.compare(tmp[j], tmp[i]) < 0) ? tmp[j++] : tmp[i++];
+        }
+
+        while (i < mid) {
+            idx[k++] = tmp[i++];
+        }
+
+        while (j < to) {
+            idx[k++] = tmp[j++];
+        }
+    }
+
+    /**
+     * Grows every column to hold at least the given number of claims.
+     * @param capacity the number of claims to make room for
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this._policyIds.length) {
+            capacity = Math.max(capacity, this._policyIds.length * 2);
+
+            this._policyIds = Arrays.copyOf(this._policyIds, capacity);
+            this._epochDays = Arrays.copyOf(this._epochDays, capacity);
+            this._claimed = Arrays.copyOf(this._claimed, capacity);
+            this._paid = Arrays.copyOf(this._paid, capacity);
+        }
+    }
+}
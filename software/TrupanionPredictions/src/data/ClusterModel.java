@@ -0,0 +1,171 @@
+package data;
+
+import algorithms.ClusterFeature;
+import algorithms.FeatureScaling;
+import java.util.Arrays;
+
+/**
+ * A converged clustering: the cluster centroids plus the cluster each policyId was
+ * assigned to. Models can be saved and reloaded through DataHandling, so a later run
+ * can reuse the clusters or warm-start clustering from them.
+ *
+ * Centroids are stored row-major (cluster c, dimension d at index c * dims + d), in
+ * the rescaled space they were clustered in. The model keeps the features clustered
+ * on, how each was rescaled and the shift and scale used, so a later run can put
+ * its own policies in the same space.
+ *
+ * @author Nathan Minor
+ */
+public final class ClusterModel {
+
+    // internal class variables
+    private final int _dims;                  // stores the number of dimensions per centroid
+    private final ClusterFeature[] _features; // stores the feature of each dimension
+    private final FeatureScaling[] _scaling;  // stores how each feature was rescaled
+    private final double[] _shift;            // stores the value subtracted from each feature
+    private final double[] _scale;            // stores the value each shifted feature was divided by
+    private final double[] _centroids;        // stores the centroids, row-major
+    private final long[] _policyIds;          // stores the policyIds that were clustered
+    private final int[] _assignments;         // stores the cluster each policyId was assigned to
+    private PolicyIndex _index;               // maps policyIds to their position, built on first lookup
+
+    /**
+     * Constructs a model, taking ownership of the arrays.
+     * @param features the feature of each dimension
+     * @param scaling how each feature was rescaled
+     * @param shift the value subtracted from each feature
+     * @param scale the value each shifted feature was divided by
+     * @param centroids the centroids, row-major
+     * @param policyIds the policyIds that were clustered
+     * @param assignments the cluster each policyId was assigned to
+     */
+    public ClusterModel(ClusterFeature[] features, FeatureScaling[] scaling, double[] shift, double[] scale,
+            double[] centroids, long[] policyIds, int[] assignments) {
+        this._dims = features.length;
+        this._features = features;
+        this._scaling = scaling;
+        this._shift = shift;
+        this._scale = scale;
+        this._centroids = centroids;
+        this._policyIds = policyIds;
+        this._assignments = assignments;
+        this._index = null;
+    }
+
+    /**
+     * "Get" method for retrieving the number of dimensions per centroid.
+     * @return The number of dimensions.
+     */
+    public int getDims() {
+        return this._dims;
+    }
+
+    /**
+     * "Get" method for retrieving the features clustered on.
+     * @return A copy of the feature of each dimension.
+     */
+    public ClusterFeature[] getFeatures() {
+        return Arrays.copyOf(this._features, this._features.length);
+    }
+
+    /**
+     * "Get" method for retrieving how each feature was rescaled.
+     * @return A copy of the scaling of each dimension.
+     */
+    public FeatureScaling[] getScaling() {
+        return Arrays.copyOf(this._scaling, this._scaling.length);
+    }
+
+    /**
+     * "Get" method for retrieving the value subtracted from a feature when rescaling.
+     * @param d index of the dimension
+     * @return The shift.
+     */
+    public double getShift(int d) {
+        return this._shift[d];
+    }
+
+    /**
+     * "Get" method for retrieving the value a shifted feature was divided by when rescaling.
+     * @param d index of the dimension
+     * @return The scale.
+     */
+    public double getScale(int d) {
+        return this._scale[d];
+    }
+
+    /**
+     * "Get" method for retrieving the number of clusters.
+     * @return The number of clusters.
+     */
+    public int getK() {
+        return this._centroids.length / this._dims;
+    }
+
+    /**
+     * "Get" method for retrieving the centroids.
+     * @return A copy of the centroids, row-major.
+     */
+    public double[] getCentroids() {
+        return Arrays.copyOf(this._centroids, this._centroids.length);
+    }
+
+    /**
+     * "Get" method for retrieving one coordinate of a centroid.
+     * @param c index of the cluster
+     * @param d index of the dimension
+     * @return The coordinate.
+     */
+    public double getCentroid(int c, int d) {
+        return this._centroids[c * this._dims + d];
+    }
+
+    /**
+     * "Get" method for retrieving the number of policyIds that were clustered.
+     * @return The number of policyIds.
+     */
+    public int size() {
+        return this._policyIds.length;
+    }
+
+    /**
+     * "Get" method for retrieving a clustered policyId.
+     * @param i position of the policyId
+     * @return The policyId.
+     */
+    public long getPolicyId(int i) {
+        return this._policyIds[i];
+    }
+
+    /**
+     * "Get" method for retrieving the cluster of a clustered policyId.
+     * @param i position of the policyId
+     * @return The cluster (0 to k - 1).
+     */
+    public int getAssignment(int i) {
+        return this._assignments[i];
+    }
+
+    /**
+     * Looks up the cluster a policyId was assigned to.
+     * @param policyId policy number
+     * @return The cluster (0 to k - 1), or -1 when the policyId was not clustered.
+     */
+    public int findCluster(long policyId) {
+
+        // local variables
+        int i = 0;
+
+        // index the policyIds the first time one is looked up
+        if (this._index == null) {
+            this._index = new PolicyIndex();
+            for (long id : this._policyIds) {
+                this._index.add(id);
+            }
+        }
+
+        i = this._index.slotOf(policyId);
+
+        return (i < 0) ? -1 : this._assignments[i];
+    }
+}
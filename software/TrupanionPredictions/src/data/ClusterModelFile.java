@@ -0,0 +1,231 @@
+package data;
+
+import algorithms.ClusterFeature;
+import algorithms.FeatureScaling;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the compact binary file for a ClusterModel.
+ *
+ * The file is a fixed header followed by the features, the centroids and the
+ * assignments:
+ * <pre>
+ *   int    magic ("TCLM")
+ *   int    format version
+ *   int    number of dimensions, dims
+ *   int    number of clusters, k
+ *   int    number of policies, n
+ *   int[dims]    feature, as its ClusterFeature code
+ *   int[dims]    scaling, as its FeatureScaling code
+ *   double[dims] shift
+ *   double[dims] scale
+ *   double[k * dims] centroids, row-major
+ *   long[n]   policyId
+ *   int[n]    cluster
+ * </pre>
+ * All values are little-endian. Features and scalings are saved as their fixed
+ * codes rather than their ordinals, so reordering or adding constants never
+ * changes what a saved model means.
+ *
+ * @author Nathan Minor
+ */
+final class ClusterModelFile {
+
+    // identifies model files and their layout
+    private static final int MAGIC = 0x54434C4D;
+    private static final int VERSION = 2;
+
+    // bytes per dimension for the feature, scaling, shift and scale
+    private static final int FEATURE_BYTES = 4 + 4 + 8 + 8;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private ClusterModelFile() {
+    }
+
+    /**
+     * Loads a model with a single bulk read.
+     * @param filePath absolute path of the model file
+     * @return The model.
+     * @throws IOException when the file cannot be read or is not a model file
+     */
+    static ClusterModel read(String filePath) throws IOException {
+
+        // local variables
+        ByteBuffer buf = null;
+        ClusterFeature[] features = null;
+        FeatureScaling[] scaling = null;
+        double[] shift = null;
+        double[] scale = null;
+        double[] centroids = null;
+        long[] policyIds = null;
+        int[] assignments = null;
+        int dims = 0;
+        int k = 0;
+        int n = 0;
+
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a cluster model file: " + filePath);
+            }
+
+            // pull the whole file in at once
+            buf = ByteBuffer.allocate((int) ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && ch.read(buf) > 0) {
+                // keep reading until the buffer is full
+            }
+            buf.flip();
+        }
+
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Not a cluster model file: " + filePath);
+        }
+
+        // older models do not record the features and scaling their centroids are in
+        if (buf.getInt() != VERSION) {
+            throw new IOException("Unsupported cluster model version, cluster again to replace: " + filePath);
+        }
+
+        dims = buf.getInt();
+        k = buf.getInt();
+        n = buf.getInt();
+        if (dims <= 0 || k < 0 || n < 0
+                || buf.remaining() != (long) dims * FEATURE_BYTES + (long) k * dims * 8 + (long) n * (8 + 4)) {
+            throw new IOException("Corrupt cluster model file: " + filePath);
+        }
+
+        // the features, and how their centroid coordinates were rescaled
+        features = new ClusterFeature[dims];
+        scaling = new FeatureScaling[dims];
+        shift = new double[dims];
+        scale = new double[dims];
+
+        for (int d = 0; d < dims; d++) {
+            features[d] = known(ClusterFeature.fromCode(buf.getInt()), filePath);
+        }
+        for (int d = 0; d < dims; d++) {
+            scaling[d] = known(FeatureScaling.fromCode(buf.getInt()), filePath);
+        }
+        for (int d = 0; d < dims; d++) {
+            shift[d] = buf.getDouble();
+        }
+        for (int d = 0; d < dims; d++) {
+            scale[d] = buf.getDouble();
+        }
+
+        // copy out the columns
+        centroids = new double[k * dims];
+        policyIds = new long[n];
+        assignments = new int[n];
+
+        buf.asDoubleBuffer().get(centroids);
+        buf.position(buf.position() + centroids.length * 8);
+        buf.asLongBuffer().get(policyIds);
+        buf.position(buf.position() + n * 8);
+        buf.asIntBuffer().get(assignments);
+
+        return new ClusterModel(features, scaling, shift, scale, centroids, policyIds, assignments);
+    }
+
+    /**
+     * Checks that a saved code named a known constant.
+     * @param <E> the enum type
+     * @param value the constant looked up by its code, null when the code is unknown
+     * @param filePath absolute path of the model file, for error messages
+     * @return The constant.
+     * @throws IOException when the code is unknown
+     */
+    private static <E extends Enum<E>> E known(E value, String filePath) throws IOException {
+        if (value == null) {
+            throw new IOException("Corrupt cluster model file: " + filePath);
+        }
+
+        return value;
+    }
+
+    /**
+     * Writes a model, replacing any older file atomically.
+     * @param filePath absolute path of the model file
+     * @param model the model to write
+     * @throws IOException when the file cannot be written
+     */
+    static void write(String filePath, ClusterModel model) throws IOException {
+
+        // local variables
+        int k = model.getK();
+        int dims = model.getDims();
+        int n = model.size();
+        Path target = Paths.get(filePath);
+        Path tmp = Paths.get(filePath + ".tmp");
+        ClusterFeature[] features = model.getFeatures();
+        FeatureScaling[] scaling = model.getScaling();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + dims * FEATURE_BYTES + k * dims * 8 + n * (8 + 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        // header
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putInt(dims);
+        buf.putInt(k);
+        buf.putInt(n);
+
+        // features
+        for (int d = 0; d < dims; d++) {
+            buf.putInt(features[d].getCode());
+        }
+        for (int d = 0; d < dims; d++) {
+            buf.putInt(scaling[d].getCode());
+        }
+        for (int d = 0; d < dims; d++) {
+            buf.putDouble(model.getShift(d));
+        }
+        for (int d = 0; d < dims; d++) {
+            buf.putDouble(model.getScale(d));
+        }
+
+        // one column at a time
+        for (int c = 0; c < k; c++) {
+            for (int d = 0; d < dims; d++) {
+                buf.putDouble(model.getCentroid(c, d));
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putLong(model.getPolicyId(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putInt(model.getAssignment(i));
+        }
+        buf.flip();
+
+        // write next to the target, then swap it in so readers never see a partial file
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // leave nothing half written behind
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException cleanup) {
+                ex.addSuppressed(cleanup);
+            }
+            throw ex;
+        }
+    }
+}
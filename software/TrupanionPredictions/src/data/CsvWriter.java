@@ -0,0 +1,182 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a CSV file through one reusable buffer that is flushed to the file
+ * whenever it fills up, so memory use stays the same no matter how many rows are
+ * written.
+ *
+ * Values come out exactly as StringBuilder.append would write them: whole numbers
+ * are encoded digit by digit straight into the buffer, doubles use
+ * Double.toString (with a shortcut for whole values), and text is encoded with
+ * the platform's default charset, like PrintWriter.
+ *
+ * @author Nathan Minor
+ */
+final class CsvWriter implements AutoCloseable {
+
+    // size of the output buffer
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    // room kept free before writing a number: sign, 19 digits and ".0"
+    private static final int NUMBER_BYTES = 32;
+
+    // doubles below this size (in magnitude) are written without an exponent
+    private static final double PLAIN_LIMIT = 1e7;
+
+    // internal class variables
+    private final FileChannel _channel; // the file being written
+    private final ByteBuffer _buf;      // stores bytes not yet written to the file
+    private final byte[] _digits;       // scratch space for the digits of a number
+    private final Charset _charset;     // used to encode text that is not plain ASCII
+
+    /**
+     * Opens a file for writing, replacing anything already in it.
+     * @param filePath absolute path of the file
+     * @throws IOException when the file cannot be opened
+     */
+    CsvWriter(String filePath) throws IOException {
+        this._channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this._buf = ByteBuffer.allocate(BUFFER_BYTES);
+        this._digits = new byte[20];
+        this._charset = Charset.defaultCharset();
+    }
+
+    /**
+     * Writes a single ASCII character, such as a separator or a line break.
+     * @param c the character
+     * @return This writer.
+     * @throws IOException when the buffer cannot be flushed
+     */
+    CsvWriter write(char c) throws IOException {
+        if (!this._buf.hasRemaining()) {
+            this.flush();
+        }
+
+        this._buf.put((byte) c);
+
+        return this;
+    }
+
+    /**
+     * Writes text.
+     * @param s the text
+     * @return This writer.
+     * @throws IOException when the buffer cannot be flushed
+     */
+    CsvWriter write(String s) throws IOException {
+
+        // local variables
+        byte[] encoded = null;
+
+        for (int i = 0; i < s.length(); i++) {
+
+            // anything outside ASCII goes through the charset, all at once
+            if (s.charAt(i) >= 0x80) {
+                encoded = s.substring(i).getBytes(this._charset);
+                for (byte b : encoded) {
+                    if (!this._buf.hasRemaining()) {
+                        this.flush();
+                    }
+                    this._buf.put(b);
+                }
+                break;
+            }
+
+            this.write(s.charAt(i));
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a whole number, as Long.toString would.
+     * @param value the number
+     * @return This writer.
+     * @throws IOException when the buffer cannot be flushed
+     */
+    CsvWriter write(long value) throws IOException {
+
+        // local variables
+        long rest = value;
+        int count = 0;
+
+        // negating the smallest long overflows, let the JDK handle it
+        if (value == Long.MIN_VALUE) {
+            return this.write(Long.toString(value));
+        }
+
+        if (this._buf.remaining() < NUMBER_BYTES) {
+            this.flush();
+        }
+
+        if (rest < 0) {
+            this._buf.put((byte) '-');
+            rest = -rest;
+        }
+
+        // digits come out lowest first, so collect them and write them back to front
+        do {
+            this._digits[count++] = (byte) ('0' + (rest % 10));
+            rest /= 10;
+        } while (rest > 0);
+
+        while (count > 0) {
+            this._buf.put(this._digits[--count]);
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a double, as Double.toString would.
+     * @param value the number
+     * @return This writer.
+     * @throws IOException when the buffer cannot be flushed
+     */
+    CsvWriter write(double value) throws IOException {
+
+        // whole values short of the exponent form print as the number and ".0"; negative zero keeps its sign
+        if (value == (long) value && Math.abs(value) < PLAIN_LIMIT
+                && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0)) {
+            this.write((long) value);
+            this._buf.put((byte) '.');
+            this._buf.put((byte) '0');
+            return this;
+        }
+
+        return this.write(Double.toString(value));
+    }
+
+    /**
+     * Writes out everything buffered so far.
+     * @throws IOException when the file cannot be written
+     */
+    void flush() throws IOException {
+        this._buf.flip();
+        while (this._buf.hasRemaining()) {
+            this._channel.write(this._buf);
+        }
+        this._buf.clear();
+    }
+
+    /**
+     * Writes out everything buffered and closes the file.
+     * @throws IOException when the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this._channel.close();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package data;
 
 import algorithms.*;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Date;
+import java.util.function.Consumer;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -21,9 +26,23 @@ import java.text.SimpleDateFormat;
 
 public class DataHandling {
     
+    /**
+     * The available strategies for parsing the input CSV file.
+     */
+    public enum ParseMode {
+        /** Original line-by-line parsing with java.util.Scanner and String.split. */
+        SCANNER,
+        /** Parses rows straight from a memory-mapped view of the file, without intermediate Strings. */
+        MAPPED,
+        /** Parses newline aligned chunks of the memory-mapped file concurrently on all cores. */
+        PARALLEL
+    }
+    
     // internal class variables for storing data in/out of a CSV file
     private String _inFile;  // stores the absolute file path for the input CSV file
     private String _outFile; // stores the absolute file path for the output CSV file
+    private ParseMode _parseMode; // stores the strategy used to parse the input CSV file
+    private boolean _snapshotEnabled; // stores whether parsed claims are cached in a binary snapshot
     
     /**
      * Default constructor to populate with blank data upon instantiation.
@@ -31,6 +50,8 @@ public class DataHandling {
     public DataHandling() {
         this._inFile = new String();
         this._outFile = new String();
+        this._parseMode = ParseMode.SCANNER;
+        this._snapshotEnabled = false;
     }
     
     /**
@@ -41,6 +62,8 @@ public class DataHandling {
     public DataHandling(String inputFile, String outFile) {
         this._inFile = inputFile;
         this._outFile = outFile;
+        this._parseMode = ParseMode.SCANNER;
+        this._snapshotEnabled = false;
     }
     
     /**
@@ -76,13 +99,157 @@ public class DataHandling {
     }
     
     /**
-     * Method used to retrieve data from input CSV file.
-     * @return 
+     * "Get" method for retrieving the strategy used to parse the input CSV file.
+     * @return The parse mode used by RetrieveData.
+     */
+    public ParseMode getParseMode() {
+        return this._parseMode;
+    }
+    
+    /**
+     * "Set" method for changing the strategy used to parse the input CSV file.
+     * @param mode the new parse mode used by RetrieveData
+     */
+    public void setParseMode(ParseMode mode) {
+        this._parseMode = mode;
+    }
+    
+    /**
+     * "Get" method for retrieving whether parsed claims are cached in a binary snapshot.
+     * @return Whether or not RetrieveData reads/writes the claim snapshot file.
+     */
+    public boolean getSnapshotEnabled() {
+        return this._snapshotEnabled;
+    }
+    
+    /**
+     * "Set" method for turning the binary claim snapshot cache on or off.
+     * @param enabled whether or not RetrieveData should read/write the claim snapshot file
+     */
+    public void setSnapshotEnabled(boolean enabled) {
+        this._snapshotEnabled = enabled;
+    }
+    
+    /**
+     * "Get" method for retrieving the file path of the binary claim snapshot,
+     * which sits next to the input CSV file.
+     * @return Absolute file path for the claim snapshot file.
+     */
+    public String getSnapshotFilePath() {
+        return this._inFile + ".snapshot";
+    }
+    
+    /**
+     * Method used to retrieve data from input CSV file, using the selected parse mode.
+     * @return list of claims parsed out of the input file
      */
     public List<ClaimLevel> RetrieveData() {
+        return this.RetrieveClaimStore().toClaims();
+    }
+    
+    /**
+     * Method used to retrieve data from input CSV file into a column oriented store,
+     * using the selected parse mode. When the snapshot cache is enabled, the claims are
+     * reloaded from the snapshot if the CSV file is unchanged, otherwise the CSV file is
+     * parsed and a new snapshot written.
+     * @return store of claims parsed out of the input file
+     */
+    public ClaimStore RetrieveClaimStore() {
+        
+        // local variables
+        ClaimStore claims = null; // columns of data from csv file
+        File csvFile = new File(this._inFile); // used to check the size and age of the csv file
+        long csvSize = csvFile.length(); // size of the csv file, taken before it is parsed
+        long csvModified = csvFile.lastModified(); // age of the csv file, taken before it is parsed
+        
+        // try the snapshot first, it is only used when it matches the csv file
+        if (this._snapshotEnabled) {
+            claims = ClaimSnapshot.read(this.getSnapshotFilePath(), csvSize, csvModified);
+            
+            if (claims != null) {
+                return claims;
+            }
+        }
+        
+        claims = new ClaimStore();
+        
+        try {
+            // dispatch on the selected parse mode
+            if (this._parseMode == ParseMode.PARALLEL) {
+                for (ClaimStore chunk : MappedClaimReader.readParallel(this._inFile, ClaimStore::new)) {
+                    claims.append(chunk);
+                }
+            } else if (this._parseMode == ParseMode.MAPPED) {
+                new MappedClaimReader().read(this._inFile, claims);
+            } else {
+                this.ScanData(claims::add);
+            }
+            
+            // cache the parsed claims for the next run, stamped with the csv file as it was
+            // before parsing so a change made during the parse leaves the snapshot stale
+            if (this._snapshotEnabled) {
+                ClaimSnapshot.write(this.getSnapshotFilePath(), csvSize, csvModified, claims);
+            }
+            
+        } catch (IOException | NumberFormatException | ParseException ex) {
+            // catch any exceptions and print them to the err output
+            System.err.print(ex.getMessage());
+        }
+        
+        // return retrieved data
+        return claims;
+    }
+    
+    /**
+     * Method used to stream data from the input CSV file straight into per-policy,
+     * per-month payout accumulators, without keeping the individual claims around.
+     * The snapshot is read when enabled and current, but never written by this method
+     * since the claims are not held in memory.
+     * @return aggregated payouts by policy and month
+     */
+    public ClaimAggregator RetrieveAggregate() {
+        
+        // local variables
+        ClaimAggregator aggregate = new ClaimAggregator(); // per policy, per month accumulators
+        File csvFile = new File(this._inFile); // used to check the size and age of the csv file
+        
+        // try the snapshot first, it is only used when it matches the csv file, and its
+        // claims go straight into the accumulators without being held as columns
+        if (this._snapshotEnabled
+                && ClaimSnapshot.feed(this.getSnapshotFilePath(), csvFile.length(), csvFile.lastModified(), aggregate)) {
+            return aggregate;
+        }
+        
+        try {
+            // dispatch on the selected parse mode
+            if (this._parseMode == ParseMode.PARALLEL) {
+                for (ClaimAggregator chunk : MappedClaimReader.readParallel(this._inFile, ClaimAggregator::new)) {
+                    aggregate.merge(chunk);
+                }
+            } else if (this._parseMode == ParseMode.MAPPED) {
+                new MappedClaimReader().read(this._inFile, aggregate);
+            } else {
+                this.ScanData(aggregate::add);
+            }
+            
+        } catch (IOException | NumberFormatException | ParseException ex) {
+            // catch any exceptions and print them to the err output
+            System.err.print(ex.getMessage());
+        }
+        
+        // return aggregated data
+        return aggregate;
+    }
+    
+    /**
+     * Parses the input CSV file one row at a time through a Scanner.
+     * @param out receives each parsed claim, in file order
+     * @throws FileNotFoundException when the input file does not exist
+     * @throws ParseException when a claim date cannot be parsed
+     */
+    private void ScanData(Consumer<ClaimLevel> out) throws FileNotFoundException, ParseException {
         
         // local variables
-        List<ClaimLevel> csvData  = new ArrayList<>(); // list for row-vector data from csv file
         File csvFile = null; // File object for retrieving data from csv file thru a file scanner
         String row = ""; // stores the next row parsed out of the csv file
         String[] cells = null; // stores the row parsed into cells
@@ -92,100 +259,143 @@ public class DataHandling {
         double claimedAmount = 0.0; // used to temp store the ClaimedAmount from a row
         double paidAmount = 0.0; // used to temp store the PaidAmount from a row
         
-        try {
-            // create the csv File object
-            csvFile = new File(this._inFile);
-            
-            // use scanner object to pull data from csv file one line at a time...
-            Scanner inputStream = new Scanner(csvFile);
-            
+        // create the csv File object
+        csvFile = new File(this._inFile);
+
+        // use scanner object to pull data from csv file one line at a time...
+        try (Scanner inputStream = new Scanner(csvFile)) {
+
             // iterate through the csv file row by row...
             while (inputStream.hasNext()) {
-                
+
                 // grab each row and parse it into an array of cells
                 row = inputStream.next();
                 cells = row.split(",");
 
                 if (cells[0].matches("\\d*")){
-                    
+
                     // temp store values from each row
                     policyId = Long.parseLong(cells[0]);
                     claimDate = df.parse(cells[1]);
                     claimedAmount = Double.parseDouble(cells[2]);
                     paidAmount = Double.parseDouble(cells[3]);
 
-                    // add the data to the custom object list
-                    csvData.add(new ClaimLevel(policyId, claimDate, claimedAmount, paidAmount));
+                    // hand the data off as a custom object
+                    out.accept(new ClaimLevel(policyId, claimDate, claimedAmount, paidAmount));
                 }
             }
+        }
+    }
+    
+    /**
+     * Method used to read the policy level CSV file (PolicyId, EnrollDate, CancelDate,
+     * MonthlyPremium), keeping the monthly premium of each policy. NULL premiums are
+     * kept as NaN.
+     * @param filePath absolute path of the policy level CSV file
+     * @return the policy level data, or null when it could not be read
+     */
+    public PolicyStore RetrievePolicyStore(String filePath) {
+        
+        // local variables
+        PolicyStore policies = new PolicyStore(); // monthly premium by policyId
+        String row = ""; // stores the next row parsed out of the csv file
+        String[] cells = null; // stores the row parsed into cells
+        
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
             
-        } catch (FileNotFoundException | NumberFormatException | ParseException ex) {
+            // iterate through the csv file row by row...
+            while ((row = reader.readLine()) != null) {
+                
+                // the file may start with a byte order mark
+                if (!row.isEmpty() && row.charAt(0) == '\uFEFF') {
+                    row = row.substring(1);
+                }
+                
+                // skip the header and anything else without a policyId
+                cells = row.split(",");
+                if (cells.length >= 4 && !cells[0].isEmpty() && cells[0].matches("\\d*")) {
+                    policies.add(Long.parseLong(cells[0]),
+                            cells[3].equals("NULL") ? Double.NaN : Double.parseDouble(cells[3]));
+                }
+            }
+            
+        } catch (IOException | NumberFormatException ex) {
             // catch any exceptions and print them to the err output
-            System.err.print(ex.getMessage());
+            System.err.println(ex.getMessage());
+            policies = null;
         }
         
-        // return retrieved data
-        return csvData;
+        // return policy level data
+        return policies;
     }
     
     /**
-     * Saves summary data for making pretty plots later.
+     * Saves summary data for making pretty plots later, for every forecast month
+     * the engine still holds.
      * @param fEngine ForecastingEngine object that has all the data/calculations
      * @return success flag for error trapping
      */
     public boolean SavePredictions(ForecastEngine fEngine) {
+        return this.SavePredictions(fEngine.getPredictions());
+    }
+    
+    /**
+     * Saves the predictions for one forecast month, as calculated by
+     * ForecastEngine.CalculatePredictions(int[]).
+     * @param fEngine ForecastingEngine object that has all the data/calculations
+     * @param month the forecast month, starting the count at 0 for Jan 2016 (e.g., Jan 2017 = 12)
+     * @return success flag for error trapping
+     */
+    public boolean SavePredictions(ForecastEngine fEngine, int month) {
+        return this.SavePredictions(fEngine.getPredictions(month));
+    }
+    
+    /**
+     * Writes a list of predictions to the output CSV file.
+     * @param predictions the predictions to write, in row order
+     * @return success flag for error trapping
+     */
+    private boolean SavePredictions(List<PayoutPrediction> predictions) {
         
         // local variables
         boolean success = true; // success flag used to indicate the success or failure of this method
-        File csvFile = null;
-        PrintWriter pw = null;
-        StringBuilder sb = null;
         Iterator cursor = null;
         PayoutPrediction tmpPred = null;
         
-        // conduct all code in a try-catch block for error trapping
-        try {
-            
-            // setup csv file object
-            csvFile = new File(this._outFile);
-            
-            // create file if it does not exist
-            csvFile.createNewFile();
-            
-            // setup print writer and string builder objects
-            pw = new PrintWriter(csvFile);
-            sb = new StringBuilder();
+        // conduct all code in a try-catch block for error trapping, rows are
+        // streamed to the file as the buffer fills rather than built up in memory
+        try (CsvWriter out = new CsvWriter(this._outFile)) {
             
             // write out column headers
-            sb.append("PolicyId");
-            sb.append(',');
-            sb.append("Year");
-            sb.append(',');
-            sb.append("Month");
-            sb.append(',');
-            sb.append("PrevMonth");
-            sb.append(',');
-            sb.append("MeanTimeBetween");
-            sb.append(',');
-            sb.append("TimingProb");
-            sb.append(',');
-            sb.append("TargetMean");
-            sb.append(',');
-            sb.append("Efm");
-            sb.append(',');
-            sb.append("EfmI");
-            sb.append(',');
-            sb.append("EfmD");
-            sb.append(',');
-            sb.append("EstimatedPayout");
-            sb.append(',');
-            sb.append("ActualPayout");
-            sb.append(',');
-            sb.append("PercentError");
-            sb.append('\n');
+            out.write("PolicyId");
+            out.write(',');
+            out.write("Year");
+            out.write(',');
+            out.write("Month");
+            out.write(',');
+            out.write("PrevMonth");
+            out.write(',');
+            out.write("MeanTimeBetween");
+            out.write(',');
+            out.write("TimingProb");
+            out.write(',');
+            out.write("TargetMean");
+            out.write(',');
+            out.write("Efm");
+            out.write(',');
+            out.write("EfmI");
+            out.write(',');
+            out.write("EfmD");
+            out.write(',');
+            out.write("EstimatedPayout");
+            out.write(',');
+            out.write("ActualPayout");
+            out.write(',');
+            out.write("PercentError");
+            out.write('\n');
             
             // setup cursor (iterator) to walk thru policy predictions
-            cursor = fEngine.getPredictions().iterator();
+            cursor = predictions.iterator();
             
             // iterate thru policy predictions
             while (cursor.hasNext()) {
@@ -194,41 +404,34 @@ public class DataHandling {
                 tmpPred = (PayoutPrediction) cursor.next();
 
                 // write out prediction as a new row in csv file
-                sb.append(tmpPred.getPolicyId());
-                sb.append(',');
-                sb.append(tmpPred.getYear());
-                sb.append(',');
-                sb.append(tmpPred.getMonth());
-                sb.append(',');
-                sb.append(tmpPred.getPrevMonth());
-                sb.append(',');
-                sb.append(tmpPred.getMeanTimeBetween());
-                sb.append(',');
-                sb.append(tmpPred.getTimingProbability());
-                sb.append(',');
-                sb.append(tmpPred.getTargetMean());
-                sb.append(',');
-                sb.append(tmpPred.getEfm());
-                sb.append(',');
-                sb.append(tmpPred.getEfmI());
-                sb.append(',');
-                sb.append(tmpPred.getEfmD());
-                sb.append(',');
-                sb.append(tmpPred.getEstimatedPayout());
-                sb.append(',');
-                sb.append(tmpPred.getActualPayout());
-                sb.append(',');
-                sb.append(tmpPred.getPercentError());
-                sb.append('\n');                
+                out.write(tmpPred.getPolicyId());
+                out.write(',');
+                out.write(tmpPred.getYear());
+                out.write(',');
+                out.write(tmpPred.getMonth());
+                out.write(',');
+                out.write(tmpPred.getPrevMonth());
+                out.write(',');
+                out.write(tmpPred.getMeanTimeBetween());
+                out.write(',');
+                out.write(tmpPred.getTimingProbability());
+                out.write(',');
+                out.write(tmpPred.getTargetMean());
+                out.write(',');
+                out.write(tmpPred.getEfm());
+                out.write(',');
+                out.write(tmpPred.getEfmI());
+                out.write(',');
+                out.write(tmpPred.getEfmD());
+                out.write(',');
+                out.write(tmpPred.getEstimatedPayout());
+                out.write(',');
+                out.write(tmpPred.getActualPayout());
+                out.write(',');
+                out.write(tmpPred.getPercentError());
+                out.write('\n');                
             }
             
-            // publish written-out csv data from string to csv file
-            pw.write(sb.toString());
-            
-            // flush the stream and close the file
-            pw.flush();
-            pw.close();
-            
         // catch any exceptions here:
         } catch (Exception ex) {
             
@@ -241,4 +444,52 @@ public class DataHandling {
         // return success flag
         return success;
     }
+    
+    /**
+     * Saves a converged cluster model to a compact binary file, so a later run can
+     * reuse it or warm-start clustering from it.
+     * @param model the cluster model to save
+     * @param filePath absolute path of the model file
+     * @return success flag for error trapping
+     */
+    public boolean SaveClusterModel(ClusterModel model, String filePath) {
+        
+        // local variables
+        boolean success = true; // success flag used to indicate the success or failure of this method
+        
+        try {
+            ClusterModelFile.write(filePath, model);
+            
+        } catch (IOException ex) {
+            
+            // set success to false and print exception
+            success = false;
+            System.err.println(ex.getMessage());
+        }
+        
+        // return success flag
+        return success;
+    }
+    
+    /**
+     * Loads a cluster model saved by SaveClusterModel.
+     * @param filePath absolute path of the model file
+     * @return the cluster model, or null when it could not be read
+     */
+    public ClusterModel RetrieveClusterModel(String filePath) {
+        
+        // local variables
+        ClusterModel model = null;
+        
+        try {
+            model = ClusterModelFile.read(filePath);
+            
+        } catch (IOException ex) {
+            // catch any exceptions and print them to the err output
+            System.err.println(ex.getMessage());
+        }
+        
+        // return the loaded model
+        return model;
+    }
 }
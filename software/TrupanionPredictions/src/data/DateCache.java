@@ -0,0 +1,52 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Small direct-mapped cache of the local midnight instant for each claim day, so
+ * building a Date per claim does not need a Calendar computation per claim.
+ *
+ * Not thread safe, each parsing thread keeps its own cache.
+ *
+ * @author Nathan Minor
+ */
+final class DateCache {
+
+    // number of cached days (must be a power of 2)
+    private static final int SIZE = 1024;
+
+    // internal class variables
+    private final Calendar _cal;        // resolves local midnight for claim dates
+    private final int[] _days;          // epoch days held by the cache
+    private final long[] _millis;       // local midnight instants for the cached days
+
+    /**
+     * Constructs an empty cache for the default time zone.
+     */
+    DateCache() {
+        this._cal = Calendar.getInstance();
+        this._days = new int[SIZE];
+        this._millis = new long[SIZE];
+
+        // mark every slot empty (no 4 digit year maps to MIN_VALUE)
+        Arrays.fill(this._days, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Converts a claim day into the Date at local midnight.
+     * @param epochDay days since 1970-01-01
+     * @return A new Date for the claim.
+     */
+    Date toDate(int epochDay) {
+        int slot = epochDay & (SIZE - 1);
+
+        if (this._days[slot] != epochDay) {
+            this._millis[slot] = EpochDays.toDate(epochDay, this._cal).getTime();
+            this._days[slot] = epochDay;
+        }
+
+        return new Date(this._millis[slot]);
+    }
+}
@@ -0,0 +1,107 @@
+package data;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Static helpers for working with claim dates as a count of days since 1970-01-01.
+ *
+ * The arithmetic follows the proleptic Gregorian calendar, which keeps the
+ * conversions free of Calendar/Date allocations on hot parsing paths.
+ *
+ * @author Nathan Minor
+ */
+public final class EpochDays {
+
+    // number of days in a 400 year Gregorian cycle
+    private static final int DAYS_PER_ERA = 146097;
+
+    // days between 0000-03-01 and 1970-01-01
+    private static final int EPOCH_SHIFT = 719468;
+
+    /**
+     * Not instantiable, static helpers only.
+     */
+    private EpochDays() {
+    }
+
+    /**
+     * Converts a civil date into days since 1970-01-01. Months and days that overflow
+     * their normal range roll over the same way a lenient Calendar would.
+     * @param year the year (e.g., 2016)
+     * @param month the month of the year, starting at 1 for January
+     * @param day the day of the month, starting at 1
+     * @return The number of days since 1970-01-01.
+     */
+    public static int fromCivil(int year, int month, int day) {
+
+        // local variables
+        int era = 0;
+        int yoe = 0;
+        int doy = 0;
+        int doe = 0;
+
+        // normalize month overflow into the year
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+
+        // count years from March so leap days fall at the end of the year
+        if (month <= 2) {
+            year--;
+        }
+
+        era = Math.floorDiv(year, 400);
+        yoe = year - era * 400;
+        doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5;
+        doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * DAYS_PER_ERA + doe - EPOCH_SHIFT + (day - 1);
+    }
+
+    /**
+     * Determines the month of the year for a count of days since 1970-01-01.
+     * @param epochDay days since 1970-01-01
+     * @return The zero based month (0 = January), matching Calendar.MONTH.
+     */
+    public static int month(int epochDay) {
+
+        // local variables
+        int z = epochDay + EPOCH_SHIFT;
+        int doe = z - Math.floorDiv(z, DAYS_PER_ERA) * DAYS_PER_ERA;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+
+        // shift back from a March based year to a January based year
+        return (mp < 10) ? mp + 2 : mp - 10;
+    }
+
+    /**
+     * Converts a Date into days since 1970-01-01, using the calendar's time zone.
+     * @param date the date to convert
+     * @param cal calendar used to break the date into fields (reused by callers)
+     * @return The number of days since 1970-01-01.
+     */
+    public static int fromDate(Date date, Calendar cal) {
+        cal.setTime(date);
+
+        return fromCivil(
+                cal.get(Calendar.YEAR),
+                cal.get(Calendar.MONTH) + 1,
+                cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Converts days since 1970-01-01 into a Date at local midnight, the same instant
+     * SimpleDateFormat("yyyy-MM-dd") produces for that day in the calendar's time zone.
+     * @param epochDay days since 1970-01-01
+     * @param cal calendar used to resolve the time zone offset (reused by callers)
+     * @return A new Date at midnight on the given day.
+     */
+    public static Date toDate(int epochDay, Calendar cal) {
+        cal.clear();
+        cal.set(1970, Calendar.JANUARY, 1 + epochDay);
+
+        return cal.getTime();
+    }
+}
@@ -0,0 +1,498 @@
+package data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Parses claim-level CSV data straight out of a memory-mapped file.
+ *
+ * Rows are read as PolicyId,ClaimDate,ClaimedAmount,PaidAmount and decoded from the
+ * mapped bytes without building intermediate Strings. Rows whose first cell is not
+ * all digits (i.e., the header) are skipped, the same as the Scanner based path.
+ *
+ * @author Nathan Minor
+ */
+final class MappedClaimReader {
+
+    // largest region of the file mapped at once, rows never straddle two regions
+    private static final long WINDOW = 1L << 30;
+
+    // smallest byte range worth handing to its own worker in parallel reads
+    private static final long MIN_CHUNK = 1L << 20;
+
+    // number of chunks per worker, so uneven chunks still balance out
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    // exact powers of ten for the fast decimal path
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // internal class variables
+    private int _pos;                  // read position within the current buffer
+    private int _limit;                // end of the complete rows in the current buffer
+
+    /**
+     * Constructs a new reader, each reader should only be used by one thread at a time.
+     */
+    MappedClaimReader() {
+        this._pos = 0;
+        this._limit = 0;
+    }
+
+    /**
+     * Reads every claim row out of a CSV file.
+     * @param filePath absolute path of the CSV file
+     * @param out sink the parsed claims are fed to, in file order
+     * @throws IOException when the file cannot be mapped
+     */
+    void read(String filePath, ClaimSink out) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            this.read(ch, 0, ch.size(), out);
+        }
+    }
+
+    /**
+     * Reads every claim row out of a CSV file, splitting it into newline aligned byte
+     * ranges that are parsed concurrently on the common ForkJoinPool. Each range feeds
+     * its own sink, so the workers never share state.
+     *
+     * A bad row or read error in any range aborts the whole load: every range is
+     * waited for before the file is closed, then the first failure is thrown and no
+     * claims are returned, unlike the sequential read, which feeds the rows before
+     * the bad one.
+     * @param <S> the type of sink
+     * @param filePath absolute path of the CSV file
+     * @param newSink creates the sink for each range
+     * @return The sink of each range, in file order.
+     * @throws IOException when the file cannot be mapped
+     */
+    static <S extends ClaimSink> List<S> readParallel(String filePath, Supplier<S> newSink) throws IOException {
+
+        // local variables
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<ForkJoinTask<S>> tasks = new ArrayList<>();
+        List<S> chunks = new ArrayList<>();
+        long[] bounds = null;
+
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+
+            // split the file into row aligned chunks
+            bounds = chunkBounds(ch, pool.getParallelism() * CHUNKS_PER_WORKER);
+
+            // parse each chunk on its own worker, with its own reader
+            for (int i = 0; i < bounds.length - 1; i++) {
+                final long start = bounds[i];
+                final long end = bounds[i + 1];
+
+                tasks.add(pool.submit(() -> {
+                    S chunk = newSink.get();
+
+                    try {
+                        new MappedClaimReader().read(ch, start, end, chunk);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+
+                    return chunk;
+                }));
+            }
+
+            // wait for every chunk to finish, failed or not, while the channel is still open
+            for (ForkJoinTask<S> task : tasks) {
+                task.quietlyJoin();
+            }
+
+            try {
+                // collect the chunks, throwing the first failure
+                for (ForkJoinTask<S> task : tasks) {
+                    chunks.add(task.join());
+                }
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Splits a file into byte ranges that each start at the beginning of a row.
+     * @param ch open channel on the CSV file
+     * @param chunks the number of ranges wanted
+     * @return Range boundaries, range i covers [bounds[i], bounds[i + 1]).
+     * @throws IOException when the file cannot be read
+     */
+    private static long[] chunkBounds(FileChannel ch, int chunks) throws IOException {
+
+        // local variables
+        long size = ch.size();
+        long[] bounds = null;
+        long nominal = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        // never make chunks so small that scheduling dominates parsing
+        chunks = (int) Math.max(1, Math.min(chunks, size / MIN_CHUNK));
+        bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+
+        for (int i = 1; i < chunks; i++) {
+
+            // move each nominal boundary forward to just past the next newline
+            nominal = Math.max(size * i / chunks, bounds[i - 1]);
+            bounds[i] = size;
+
+            while (nominal < size && bounds[i] == size) {
+                probe.clear();
+
+                if (ch.read(probe, nominal) <= 0) {
+                    break;
+                }
+
+                for (int j = 0; j < probe.position(); j++) {
+                    if (probe.get(j) == '\n') {
+                        bounds[i] = nominal + j + 1;
+                        break;
+                    }
+                }
+
+                nominal += probe.position();
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Reads the claim rows found within a byte range of a CSV file. The range must
+     * start at the beginning of a row and end just after a newline (or at end of file).
+     * @param ch open channel on the CSV file
+     * @param start offset of the first byte to parse
+     * @param end offset just past the last byte to parse
+     * @param out sink the parsed claims are fed to, in file order
+     * @throws IOException when the file cannot be mapped
+     */
+    void read(FileChannel ch, long start, long end, ClaimSink out) throws IOException {
+
+        // local variables
+        long pos = start;
+        long len = 0;
+        int limit = 0;
+        MappedByteBuffer buf = null;
+
+        // walk thru the range one mapping window at a time
+        while (pos < end) {
+
+            len = Math.min(end - pos, WINDOW);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            limit = (int) len;
+
+            // back off to the last complete row when the window stops short of the range
+            if (pos + len < end) {
+                while (limit > 0 && buf.get(limit - 1) != '\n') {
+                    limit--;
+                }
+
+                if (limit == 0) {
+                    throw new IOException("CSV row longer than " + WINDOW + " bytes at offset " + pos);
+                }
+            }
+
+            this.parseRows(buf, limit, out);
+            pos += limit;
+        }
+    }
+
+    /**
+     * Parses every row in the buffer up to the limit.
+     * @param buf mapped bytes
+     * @param limit end of the complete rows in the buffer
+     * @param out sink the parsed claims are fed to
+     */
+    private void parseRows(ByteBuffer buf, int limit, ClaimSink out) {
+
+        // local variables
+        byte b = 0;
+        long policyId = 0;
+        int epochDay = 0;
+        double claimedAmount = 0.0;
+        double paidAmount = 0.0;
+
+        this._pos = 0;
+        this._limit = limit;
+
+        while (this._pos < this._limit) {
+
+            b = buf.get(this._pos);
+
+            // skip blank lines and line endings
+            if (b == '\n' || b == '\r' || b == ' ' || b == '\t') {
+                this._pos++;
+                continue;
+            }
+
+            // only rows led by an all-digit cell hold data (skips the header row)
+            if (!this.leadsWithDigits(buf)) {
+                this.skipRow(buf);
+                continue;
+            }
+
+            // parse the cells of this row
+            policyId = this.parsePolicyId(buf);
+            epochDay = this.parseDate(buf);
+            claimedAmount = this.parseAmount(buf);
+            paidAmount = this.parseAmount(buf);
+
+            // ignore any cells past the fourth
+            this.skipRow(buf);
+
+            // hand the claim off
+            out.accept(policyId, epochDay, claimedAmount, paidAmount);
+        }
+    }
+
+    /**
+     * Determines if the first cell of the row at the read position is all digits.
+     * @param buf mapped bytes
+     * @return Whether or not the row holds claim data.
+     */
+    private boolean leadsWithDigits(ByteBuffer buf) {
+        int i = this._pos;
+        byte b = 0;
+
+        while (i < this._limit) {
+            b = buf.get(i);
+
+            if (b == ',' || b == '\n' || b == '\r') {
+                return true;
+            } else if (b < '0' || b > '9') {
+                return false;
+            }
+
+            i++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the read position past the end of the current row.
+     * @param buf mapped bytes
+     */
+    private void skipRow(ByteBuffer buf) {
+        while (this._pos < this._limit && buf.get(this._pos) != '\n') {
+            this._pos++;
+        }
+    }
+
+    /**
+     * Moves the read position past the comma ending the current cell.
+     * @param buf mapped bytes
+     */
+    private void endCell(ByteBuffer buf) {
+        if (this._pos < this._limit && buf.get(this._pos) == ',') {
+            this._pos++;
+        } else if (this._pos >= this._limit || buf.get(this._pos) == '\n' || buf.get(this._pos) == '\r') {
+            throw new NumberFormatException("Missing cells in CSV row ending at offset " + this._pos);
+        } else {
+            throw new NumberFormatException("Unexpected character in CSV cell at offset " + this._pos);
+        }
+    }
+
+    /**
+     * Parses the policyId cell, which is known to be all digits.
+     * @param buf mapped bytes
+     * @return The policyId.
+     */
+    private long parsePolicyId(ByteBuffer buf) {
+        int start = this._pos;
+        long value = 0;
+        int digit = 0;
+        byte b = 0;
+
+        while (this._pos < this._limit && (b = buf.get(this._pos)) >= '0' && b <= '9') {
+            digit = b - '0';
+
+            // mirror Long.parseLong on overflow
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + this.cellText(buf, start) + "\"");
+            }
+
+            value = value * 10 + digit;
+            this._pos++;
+        }
+
+        // an empty cell is not a number
+        if (this._pos == start) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+
+        this.endCell(buf);
+
+        return value;
+    }
+
+    /**
+     * Parses a yyyy-MM-dd claim date cell.
+     * @param buf mapped bytes
+     * @return The claim date as days since 1970-01-01.
+     */
+    private int parseDate(ByteBuffer buf) {
+        int start = this._pos;
+        int year = this.parseDatePart(buf, start);
+        int month = 0;
+        int day = 0;
+
+        this.expect(buf, (byte) '-', start);
+        month = this.parseDatePart(buf, start);
+        this.expect(buf, (byte) '-', start);
+        day = this.parseDatePart(buf, start);
+        this.endCell(buf);
+
+        return EpochDays.fromCivil(year, month, day);
+    }
+
+    /**
+     * Parses one run of digits within a date cell.
+     * @param buf mapped bytes
+     * @param start offset of the date cell, for error messages
+     * @return The parsed number.
+     */
+    private int parseDatePart(ByteBuffer buf, int start) {
+        int value = 0;
+        int digits = 0;
+        byte b = 0;
+
+        while (this._pos < this._limit && (b = buf.get(this._pos)) >= '0' && b <= '9' && digits < 9) {
+            value = value * 10 + (b - '0');
+            digits++;
+            this._pos++;
+        }
+
+        if (digits == 0) {
+            throw new NumberFormatException("Unparseable date: \"" + this.cellText(buf, start) + "\"");
+        }
+
+        return value;
+    }
+
+    /**
+     * Moves past an expected separator within a cell.
+     * @param buf mapped bytes
+     * @param c the expected separator
+     * @param start offset of the cell, for error messages
+     */
+    private void expect(ByteBuffer buf, byte c, int start) {
+        if (this._pos < this._limit && buf.get(this._pos) == c) {
+            this._pos++;
+        } else {
+            throw new NumberFormatException("Unparseable date: \"" + this.cellText(buf, start) + "\"");
+        }
+    }
+
+    /**
+     * Parses a decimal amount cell. Plain decimals with up to 15 significant digits
+     * are converted exactly (the same double Double.parseDouble returns), anything
+     * else falls back to Double.parseDouble on the cell text.
+     * @param buf mapped bytes
+     * @return The parsed amount.
+     */
+    private double parseAmount(ByteBuffer buf) {
+
+        // local variables
+        int start = this._pos;
+        boolean negative = false;
+        boolean fast = true;
+        boolean anyDigits = false;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = 0;
+        boolean point = false;
+        double value = 0.0;
+        byte b = 0;
+
+        // optional sign
+        if (this._pos < this._limit && ((b = buf.get(this._pos)) == '-' || b == '+')) {
+            negative = (b == '-');
+            this._pos++;
+        }
+
+        // digits with at most one decimal point
+        while (this._pos < this._limit) {
+            b = buf.get(this._pos);
+
+            if (b >= '0' && b <= '9') {
+                anyDigits = true;
+
+                // leading zeros are not significant
+                if (mantissa > 0 || b != '0') {
+                    digits++;
+                }
+
+                mantissa = (digits <= 15) ? mantissa * 10 + (b - '0') : mantissa;
+
+                if (point) {
+                    fraction++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else if (b == ',' || b == '\n' || b == '\r') {
+                break;
+            } else {
+                // exponents, NaN, etc. are left to the slow path
+                fast = false;
+            }
+
+            this._pos++;
+        }
+
+        // fall back to the JDK parser for anything the fast path cannot handle exactly
+        if (!fast || !anyDigits || digits > 15 || fraction >= POW10.length) {
+            value = Double.parseDouble(this.cellText(buf, start));
+        } else {
+            value = mantissa / POW10[fraction];
+            value = negative ? -value : value;
+        }
+
+        // step over the comma, the last cell may also end the row
+        if (this._pos < this._limit && buf.get(this._pos) == ',') {
+            this._pos++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Copies the text of a cell, only used for error messages and the slow decimal path.
+     * @param buf mapped bytes
+     * @param start offset of the cell
+     * @return The cell text.
+     */
+    private String cellText(ByteBuffer buf, int start) {
+        int end = start;
+        byte[] bytes = null;
+
+        while (end < this._limit && buf.get(end) != ',' && buf.get(end) != '\n' && buf.get(end) != '\r') {
+            end++;
+        }
+
+        bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(start + i);
+        }
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -9,6 +9,9 @@ import java.text.DateFormatSymbols;
  */
 public class PayoutPrediction {
     
+    // month names, looked up once rather than on every call
+    private static final String[] MONTH_NAMES = new DateFormatSymbols().getMonths();
+    
     // internal class variables for storing calculated predictions, aggregated by policyId by month
     private long _policyId;
     private int _year;
@@ -92,7 +95,7 @@ public class PayoutPrediction {
      * @return The month for which this prediction wad made on this policyId.
      **/
     public String getMonth() {
-        return new DateFormatSymbols().getMonths()[(this._month % 12)];
+        return MONTH_NAMES[(this._month % 12)];
     }
     
     /**
@@ -100,7 +103,7 @@ public class PayoutPrediction {
      * @return The previous month an amount was paid out on this policyId.
      */
     public String getPrevMonth() {
-        return new DateFormatSymbols().getMonths()[this._prevT];
+        return MONTH_NAMES[this._prevT];
     }
     
     /**
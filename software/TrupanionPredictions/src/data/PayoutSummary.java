@@ -1,7 +1,6 @@
 
 package data;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,13 +9,31 @@ import java.util.List;
  */
 public final class PayoutSummary implements Comparable<PayoutSummary> {
     
+    // number of forecast months with precalculated error from mean tables, Jan 2016 (0) thru Jan 2017 (12)
+    private static final int EFM_MONTHS = 13;
+    
+    // cluster id of a summary that has not been clustered, which stands for its own values
+    private static final int UNCLUSTERED = -1;
+    
+    // single centroid at (0.0, 0.0), shared by blank summaries
+    private static final CentroidTable BLANK = new CentroidTable(new double[] { 0.0 }, new double[] { 0.0 });
+    
     // internal class variables for storing data parsed out of CSV file, aggregated by policyId    
-    private List<Integer> _timeline; // stores a list of payout months for use with calculating timeline stats
-    private List<Double> _payoutData; // stores a (sorted) list of payouts for use with calculating descriptive stats below
-    private Centroid _p;        // the centroid assigned to this policyId
+    private int[] _timeline;    // stores the payout months, in ascending order, for use with calculating timeline stats
+    private double[] _payoutData; // stores the payouts for each month on the timeline, for use with calculating descriptive stats below
+    private CentroidTable _centroids; // the centroids of the clustering this policyId belongs to, shared
+    private int _cluster;       // the cluster id of this policyId in the centroid table, UNCLUSTERED when not clustered
     private long _policyId;      // stores the policyId
     private double _min;        // stores the minimum monthly payout for this policyId during the 2016
     private double _max;        // stores the maximum monthly payout for this policyId during 2016
+    private double _mean;       // stores the mean monthly payout, computed once from the payout data
+    private double _variance;   // stores the sum of squared differences from the mean monthly payout
+    private double _avgBetween; // stores the mean number of months between payouts
+    private double _varBetween; // stores the sum of squared differences from the mean months between payouts
+    private double[] _efm;      // stores the error from mean function for each forecast month
+    private double[] _efmI;     // stores the balance (integral) of the error from mean function for each forecast month
+    private double[] _efmD;     // stores the slope of the error from mean function for each forecast month
+    private double[] _efmSums;  // stores the running balance of the error from mean function along the timeline
     private double _sum;        // stores the sum of all payouts for this policyId in 2016
     
     
@@ -25,14 +42,16 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      **/
     public PayoutSummary () {
         
-        this._payoutData = new ArrayList<>();
-        this._timeline = new ArrayList<>();
-        this._p = new Centroid();
+        this._payoutData = new double[0];
+        this._timeline = new int[0];
+        this._centroids = BLANK;
+        this._cluster = 0;
         
         this._policyId = 0;
         this._min = 0.0;
         this._max = 0.0;
         this._sum = 0.0;
+        this.CalculateStats();
     }
     
     
@@ -41,9 +60,20 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @param policyId policy number
      * @param data a list of payout values aggregated by month per policyId across 2016
      * @param sum the sum of all payouts for this policyId in 2016
-     * @param timeline
+     * @param timeline the month of each payout value, in ascending order
      **/
     public PayoutSummary (long policyId, double sum, List<Double> data, List<Integer> timeline) {
+        this(policyId, sum, toDoubleArray(data), toIntArray(timeline));
+    }
+    
+    /**
+     * Constuctor to populate with data upon instantiation, taking ownership of the arrays.
+     * @param policyId policy number
+     * @param sum the sum of all payouts for this policyId in 2016
+     * @param data payout values aggregated by month per policyId across 2016
+     * @param timeline the month of each payout value, in ascending order
+     **/
+    public PayoutSummary (long policyId, double sum, double[] data, int[] timeline) {
                
         // assign inputs approiately
         this._policyId = policyId;
@@ -64,10 +94,13 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
         }
         
         
-        // setup the initial centroid
-        this._p = new Centroid(
-                this.getAvgBetweenTime(), 
-                this.getMean());
+        // descriptive stats never change once the data is in, so calculate them up front
+        this.CalculateStats();
+        this.CalculateEfmTables();
+        
+        // until clustered, a policyId's centroid is its own values
+        this._centroids = null;
+        this._cluster = UNCLUSTERED;
         
     }
     
@@ -108,7 +141,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @return The number of payouts for this policyId across 2016
      **/
     public final int getCount() {
-        return this._payoutData.size();
+        return this._payoutData.length;
     }
     
     
@@ -125,7 +158,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @return The mean on monthly payouts for this policyId across 2016
      **/
     public double getMean() {
-        return (this._sum / this.getCount());
+        return this._mean;
     }
     
     /**
@@ -133,14 +166,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @return The variance on monthly payouts for this policyId across 2016
      **/
     public double getVariance() {
-        double var = 0.0;
-        
-        // loop over the payout data to calculate variance as the sum of the squares of differences from the mean
-        for (int i = 0; i < this.getCount(); i++) {
-            var += Math.pow((this._payoutData.get(i) - this.getMean()), 2);
-        }
-        
-        return var;
+        return this._variance;
     }
     
     /**
@@ -171,25 +197,22 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                 }
 
                 // handle case where there is only one month in the timelime...
-                if (this._timeline.size() == 1) {                    
-                    month = this._timeline.get(0);
+                if (this._timeline.length == 1) {                    
+                    month = this._timeline[0];
                     
-                } else if (this._timeline.get(0) < t) {
+                } else if (this._timeline[0] < t) {
                     
-                    // loop thru an determine which index on the timeline corresponds to
+                    // determine which index on the timeline corresponds to
                     // the previous month to the most recent month a payout was made                    
-                    for (int T : this._timeline) {
-                        if (T < t)
-                            i++;
-                    }
+                    i = this.countBefore(t);
 
                     // validate index to stop an out of bound exception
-                    if (!(this._timeline.size() > i)) {
-                        i = this._timeline.size() - 1;
+                    if (!(this._timeline.length > i)) {
+                        i = this._timeline.length - 1;
                     }
                     
                     // sets month accordingly
-                    month = (this._timeline.get(i) > t) ? this._timeline.get(i - 1) : this._timeline.get(i);
+                    month = (this._timeline[i] > t) ? this._timeline[i - 1] : this._timeline[i];
                 }
             }
         } catch (Exception ex) {            
@@ -219,12 +242,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                     t = 11;
                 }
 
-                // loop thru an determine which index on the timeline corresponds to
+                // determine which index on the timeline corresponds to
                 // the previous month to the most recent month a payout was made
-                for (int T : this._timeline) {
-                    if (T < t)
-                        i++;
-                }
+                i = this.countBefore(t);
 
                 // validate index to stop an out of bound exception
                 if (i >= this.getCount()) {
@@ -234,9 +254,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                 // validate index before risking an out of bound exception
                 if (i > 1) {
                     // assign month value appropriately based on when the index i determined the comparison month
-                    month = (this._timeline.get(i) > t) ? this._timeline.get(i - 2) : this._timeline.get(i - 1);
+                    month = (this._timeline[i] > t) ? this._timeline[i - 2] : this._timeline[i - 1];
                 } else {
-                    month = this._timeline.get(i);
+                    month = this._timeline[i];
                 }
             }
         } catch (Exception ex) {            
@@ -266,13 +286,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                     t = 11;
                 }
 
-                // loop thru an determine which index on the timeline corresponds to
+                // determine which index on the timeline corresponds to
                 // the previous month to the most recent month a payout was made
-                for (int T : this._timeline) {
-                    if (T < t) {
-                        i++;
-                    }
-                }
+                i += this.countBefore(t);
                 
                 // make sure there were any months prior to the prediction month, t
                 if (i > 0) {
@@ -282,7 +298,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                     }
 
                     // set month accordingly
-                    amount = (this._timeline.get(i) > t) ? this._payoutData.get(i - 1) : this._payoutData.get(i);
+                    amount = (this._timeline[i] > t) ? this._payoutData[i - 1] : this._payoutData[i];
                 }
             }
         } catch (Exception ex) {            
@@ -312,14 +328,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                     t = 11;
                 }
 
-                // loop thru an determine which index on the timeline corresponds to
+                // determine which index on the timeline corresponds to
                 // the previous month to the most recent month a payout was made
-                
-                for (int T : this._timeline) {
-                    if (T < t) {
-                        i++;
-                    }
-                }
+                i = this.countBefore(t);
 
                 // validate index to stop an out of bound exception
                 if (i >= this.getCount()) {
@@ -329,9 +340,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
                 // validate index to stop an out of bound exception                
                 if (i > 1) {
                     // assign payout value appropriately based on when the index i determined the comparison month
-                    amount = (this._timeline.get(i) > t) ? this._payoutData.get(i - 2) : this._payoutData.get(i - 1);
+                    amount = (this._timeline[i] > t) ? this._payoutData[i - 2] : this._payoutData[i - 1];
                 } else {
-                    amount = this._payoutData.get(i);
+                    amount = this._payoutData[i];
                 }
             }
         } catch (Exception ex) {            
@@ -342,25 +353,21 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
         return amount;
     }
     
+    /**
+     * "Get" method for retrieving the amount paid out for this policyId during a given month.
+     * @param month the month to look up (0 = Jan 2016)
+     * @return The amount paid during the month, or 0 when nothing was paid
+     **/
     public double getPaidAmount(int month) {
         // local variables
-        int indexT = this._timeline.size();
+        int indexT = this.countBefore(month);
         double paidAmount = 0.0;
         
-        // iff timelime contains month, grab its index
-        for (int i = 0; i < this._timeline.size(); i++) {
-            // notice: months in timeline list are NOT zero based lke month input variable
-            if (this._timeline.get(i) == month) {
-                indexT = i;
-                break;
-            }
-        }
-        
-        // iff a proper index was found, then
-        if (indexT < this._timeline.size()) {
+        // iff timelime contains month, then
+        if (indexT < this._timeline.length && this._timeline[indexT] == month) {
             
             // snag the approriate paid amount
-            paidAmount = this._payoutData.get(indexT);
+            paidAmount = this._payoutData[indexT];
             
         } // otherwise leave paid amount at 0
         
@@ -373,22 +380,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @return The average (mean) time, in months, between payouts for this policyId across 2016
      **/
     public final double getAvgBetweenTime() {
-        double sum = 0.0;
-        double avg = 0.0;
-        
-        for (int i = 0; i < this.getCount() - 1; i++) {
-            sum += (this._timeline.get(i + 1) - this._timeline.get(i));
-        }
-            
-        // handles divide by 0 cases
-        if (this.getCount() == 1) {
-            avg = 0;
-        } else {
-            
-            avg = (sum / (this.getCount() - 1));
-        }
-        
-        return avg;
+        return this._avgBetween;
     }
     
     /**
@@ -396,13 +388,7 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      * @return The number of payouts for this policyId across 2016
      **/
     public double getVarBetweenTime() {
-        double var = 0.0;
-        
-        for (int i = 0; i < this.getCount() - 1; i++) {
-            var += Math.pow(((this._timeline.get(i + 1) - this._timeline.get(i)) - this.getAvgBetweenTime()), 2);
-        }
-        
-        return var;
+        return this._varBetween;
     }
     
     /**
@@ -420,6 +406,147 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
      **/
     public double getEfm(int t) {
         
+        // use the precalculated table for forecast months
+        if (this._efm != null && t >= 0 && t < EFM_MONTHS) {
+            return this._efm[t];
+        }
+        
+        return this.CalculateEfm(t);
+    }
+    
+    /**
+     * Calculates the balance (integral) of the error from mean function
+     * up to month t.
+     * @param t The month up to which to calculate the balance (integral) of the error function.
+     * @return The balance of the error from mean function up to month t.
+     */
+    public double getEfmI(int t) {
+        
+        // use the precalculated table for forecast months
+        if (this._efmI != null && t >= 0 && t < EFM_MONTHS) {
+            return this._efmI[t];
+        }
+        
+        // otherwise the balance is the running sum over every timeline month prior to t
+        if (this._efmSums != null) {
+            return this._efmSums[this.countBefore(t)];
+        }
+        
+        return this.CalculateEfmI(t);
+    }
+    
+    public double getEfmD(int t) {
+        
+        // use the precalculated table for forecast months
+        if (this._efmD != null && t >= 0 && t < EFM_MONTHS) {
+            return this._efmD[t];
+        }
+        
+        return this.CalculateEfmD(t);
+    }
+    
+    /**
+     * "Get" method for retrieveing the centroid value associated with this policyId
+     * for the cluster grouping on average time between payouts. A new object is
+     * built on each call; use getCentroidX and getCentroidY on hot paths.
+     * @return  The centroid assign to this policyId
+     */
+    public Centroid getCentroid() {
+        return new Centroid(this.getCentroidX(), this.getCentroidY());
+    }
+    
+    /**
+     * "Get" method for retrieving the first coordinate of the centroid associated
+     * with this policyId: the average time between payouts of its cluster.
+     * @return The average time between payouts of the cluster, or of this policyId when not clustered.
+     */
+    public double getCentroidX() {
+        return (this._cluster == UNCLUSTERED) ? this.getAvgBetweenTime() : this._centroids.getX(this._cluster);
+    }
+    
+    /**
+     * "Get" method for retrieving the second coordinate of the centroid associated
+     * with this policyId: the mean payout of its cluster.
+     * @return The mean payout of the cluster, or of this policyId when not clustered.
+     */
+    public double getCentroidY() {
+        return (this._cluster == UNCLUSTERED) ? this.getMean() : this._centroids.getY(this._cluster);
+    }
+    
+    /**
+     * "Get" method for retrieving the cluster this policyId was assigned to.
+     * @return The cluster id in the centroid table, or -1 when not clustered.
+     */
+    public int getClusterId() {
+        return this._cluster;
+    }
+    
+    /**
+     * "Set" method for assigning this policyId to a cluster.
+     * @param centroids the centroids of the clustering, shared by every policyId in it
+     * @param cluster the cluster id in the centroid table
+     */
+    public void setCluster(CentroidTable centroids, int cluster) {
+        this._centroids = centroids;
+        this._cluster = cluster;
+    }
+    
+    /**
+     * "Set" method for changing/updating the value of the centroid, clustered
+     * on average time between payouts, associated with this policyId. Prefer
+     * setCluster, which shares one centroid table across a whole clustering.
+     * @param p   The new centroid to assign.
+     */
+    public void setCentroid(Centroid p) {
+        this.setCluster(new CentroidTable(new double[] { p.getX() }, new double[] { p.getY() }), 0);
+    }
+    
+    /**
+     * Calculates the descriptive stats on the monthly payouts and on the months
+     * between payouts. Runs once when the summary is built: one pass for the
+     * means, then one pass for the squared differences from those means.
+     */
+    private void CalculateStats() {
+        
+        // local variables
+        double betweenSum = 0.0;
+        double var = 0.0;
+        double varBetween = 0.0;
+        
+        for (int i = 0; i < this.getCount() - 1; i++) {
+            betweenSum += (this._timeline[i + 1] - this._timeline[i]);
+        }
+        
+        // the mean payout is taken from the overall sum the summary was built with
+        this._mean = (this._sum / this.getCount());
+        
+        // handles divide by 0 cases
+        if (this.getCount() == 1) {
+            this._avgBetween = 0;
+        } else {
+            this._avgBetween = (betweenSum / (this.getCount() - 1));
+        }
+        
+        // variance as the sum of the squares of differences from the mean
+        for (int i = 0; i < this.getCount(); i++) {
+            var += Math.pow((this._payoutData[i] - this._mean), 2);
+        }
+        
+        for (int i = 0; i < this.getCount() - 1; i++) {
+            varBetween += Math.pow(((this._timeline[i + 1] - this._timeline[i]) - this._avgBetween), 2);
+        }
+        
+        this._variance = var;
+        this._varBetween = varBetween;
+    }
+    
+    /**
+     * Calculates the Error (from mean) function at month t from the payout data.
+     * @param t
+     * @return Error from the cluster mean as a percent value on a scale from 0 to 1..
+     */
+    private double CalculateEfm(int t) {
+        
         // local variables
         double efm = 0.0;
         
@@ -431,12 +558,12 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
     }
     
     /**
-     * Calculates the balance (integral) of the error from mean function
-     * up to month t.
+     * Calculates the balance (integral) of the error from mean function up to
+     * month t by walking the timeline.
      * @param t The month up to which to calculate the balance (integral) of the error function.
      * @return The balance of the error from mean function up to month t.
      */
-    public double getEfmI(int t) {
+    private double CalculateEfmI(int t) {
         // local variables
         double integral = 0.0;
         
@@ -453,7 +580,13 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
         return integral;
     }
     
-    public double getEfmD(int t) {
+    /**
+     * Calculates the slope of the error from mean function between the previous
+     * payout month and month t.
+     * @param t
+     * @return The slope of the error from mean function at month t.
+     */
+    private double CalculateEfmD(int t) {
         // local variables
         double slope = 0.0;
         int prevT = this.getPreviousPayoutMonth(t);
@@ -467,21 +600,96 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
     }
     
     /**
-     * "Get" method for retrieveing the centroid value associated with this policyId
-     * for the cluster grouping on average time between payouts
-     * @return  The centroid assign to this policyId
+     * Precalculates the error from mean function, its balance and its slope for
+     * every forecast month, so predictions for any month are simple lookups.
+     * The balance is kept as a running sum along the timeline: the balance up to
+     * month t is the running sum over the timeline months prior to t, added in
+     * the same order as the timeline walk in CalculateEfmI.
      */
-    public Centroid getCentroid() {
-        return this._p;
+    private void CalculateEfmTables() {
+        
+        // local variables
+        double[] efm = new double[EFM_MONTHS];
+        double[] efmI = new double[EFM_MONTHS];
+        double[] efmD = new double[EFM_MONTHS];
+        double[] efmSums = new double[this._timeline.length + 1];
+        int T = 0;
+        
+        // error from mean function for each month
+        for (int t = 0; t < EFM_MONTHS; t++) {
+            efm[t] = this.CalculateEfm(t);
+        }
+        this._efm = efm;
+        
+        // running balance along the timeline, efmSums[i] covers the first i timeline months
+        for (int i = 0; i < this._timeline.length; i++) {
+            T = this._timeline[i];
+            efmSums[i + 1] = efmSums[i] + this.getEfm(T) * (T - this.getPreviousPayoutMonth(T));
+        }
+        this._efmSums = efmSums;
+        
+        // balance and slope for each month
+        for (int t = 0; t < EFM_MONTHS; t++) {
+            efmI[t] = efmSums[this.countBefore(t)];
+            efmD[t] = this.CalculateEfmD(t);
+        }
+        this._efmI = efmI;
+        this._efmD = efmD;
     }
     
     /**
-     * "Set" method for changing/updating the value of the centroid, clustered
-     * on average time between payouts, associated with this policyId
-     * @param p   The new centroid to assign.
+     * Counts the payout months on the timeline that come before month t, using a
+     * binary search over the (ascending) timeline.
+     * @param t the month to compare against
+     * @return The number of timeline months less than t, which is also the index of
+     * the first timeline month at or after t.
      */
-    public void setCentroid(Centroid p) {
-        this._p = p;
+    private int countBefore(int t) {
+        int lo = 0;
+        int hi = this._timeline.length;
+        int mid = 0;
+        
+        while (lo < hi) {
+            mid = (lo + hi) >>> 1;
+            
+            if (this._timeline[mid] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        
+        return lo;
+    }
+    
+    /**
+     * Copies a list of boxed payouts into a primitive array.
+     * @param data the list to copy
+     * @return A new array holding the same values.
+     */
+    private static double[] toDoubleArray(List<Double> data) {
+        double[] array = new double[data.size()];
+        
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data.get(i);
+        }
+        
+        return array;
+    }
+    
+    /**
+     * Copies a list of boxed months into a primitive array.
+     * @param timeline the list to copy
+     * @return A new array holding the same values.
+     */
+    private static int[] toIntArray(List<Integer> timeline) {
+        int[] array = new int[timeline.size()];
+        
+        for (int i = 0; i < array.length; i++) {
+            array[i] = timeline.get(i);
+        }
+        
+        return array;
     }
     
     /**
@@ -492,9 +700,9 @@ public final class PayoutSummary implements Comparable<PayoutSummary> {
     @Override
     public int compareTo(PayoutSummary s) {
         
-        if (this._p.getY() > s.getCentroid().getY()) {
+        if (this.getCentroidY() > s.getCentroidY()) {
             return 1;
-        } else if (this._p.getY() < s.getCentroid().getY()) {
+        } else if (this.getCentroidY() < s.getCentroidY()) {
             return -1;
         } else {
             return 0;
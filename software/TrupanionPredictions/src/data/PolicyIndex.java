@@ -0,0 +1,161 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from policyId to a dense slot number. Slots are handed
+ * out in the order policies are first seen (0, 1, 2, ...), so callers can keep
+ * per-policy data in plain arrays indexed by slot.
+ *
+ * Keys live in a flat long[] and the table in a flat int[], so lookups never box
+ * a policyId or allocate map entries.
+ *
+ * @author Nathan Minor
+ */
+final class PolicyIndex {
+
+    // initial number of table entries, always a power of two
+    private static final int INITIAL_TABLE = 2048;
+
+    // internal class variables
+    private long[] _keys;   // stores the policyId held by each slot
+    private int[] _table;   // stores slot + 1 for each hash position, 0 when empty
+    private int _mask;      // table length - 1, used to wrap hash positions
+    private int _size;      // stores the number of slots in use
+
+    /**
+     * Constructs an empty index.
+     */
+    PolicyIndex() {
+        this._keys = new long[INITIAL_TABLE / 2];
+        this._table = new int[INITIAL_TABLE];
+        this._mask = INITIAL_TABLE - 1;
+        this._size = 0;
+    }
+
+    /**
+     * Finds the slot for a policy, adding a new slot the first time a policy is seen.
+     * @param policyId policy number
+     * @return The slot for the policy.
+     */
+    int add(long policyId) {
+
+        // local variables
+        int pos = hash(policyId) & this._mask;
+        int entry = 0;
+
+        // linear probe until the key or an empty position turns up
+        while ((entry = this._table[pos]) != 0) {
+            if (this._keys[entry - 1] == policyId) {
+                return entry - 1;
+            }
+
+            pos = (pos + 1) & this._mask;
+        }
+
+        // keep the table at most half full
+        if (this._size == this._keys.length) {
+            this.grow();
+            return this.add(policyId);
+        }
+
+        this._keys[this._size] = policyId;
+        this._table[pos] = ++this._size;
+
+        return this._size - 1;
+    }
+
+    /**
+     * Finds the slot for a policy.
+     * @param policyId policy number
+     * @return The slot for the policy, or -1 when the policy has not been seen.
+     */
+    int slotOf(long policyId) {
+
+        // local variables
+        int pos = hash(policyId) & this._mask;
+        int entry = 0;
+
+        while ((entry = this._table[pos]) != 0) {
+            if (this._keys[entry - 1] == policyId) {
+                return entry - 1;
+            }
+
+            pos = (pos + 1) & this._mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * "Get" method for retrieving the number of policies seen.
+     * @return The number of slots in use.
+     */
+    int size() {
+        return this._size;
+    }
+
+    /**
+     * "Get" method for retrieving the policyId held by a slot.
+     * @param slot the slot (0 to size - 1)
+     * @return The policyId.
+     */
+    long getPolicyId(int slot) {
+        return this._keys[slot];
+    }
+
+    /**
+     * Orders the slots by policyId. Only the policy keys get sorted.
+     * @return Slots sorted by ascending policyId.
+     */
+    int[] sortedSlots() {
+
+        // local variables
+        long[] keys = Arrays.copyOf(this._keys, this._size);
+        int[] order = new int[this._size];
+
+        Arrays.sort(keys);
+
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = this.slotOf(keys[i]);
+        }
+
+        return order;
+    }
+
+    /**
+     * Doubles the table and re-inserts every slot.
+     */
+    private void grow() {
+
+        // local variables
+        int[] table = new int[this._table.length * 2];
+        int mask = table.length - 1;
+        int pos = 0;
+
+        for (int slot = 0; slot < this._size; slot++) {
+            pos = hash(this._keys[slot]) & mask;
+
+            while (table[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+
+            table[pos] = slot + 1;
+        }
+
+        this._table = table;
+        this._mask = mask;
+        this._keys = Arrays.copyOf(this._keys, table.length / 2);
+    }
+
+    /**
+     * Spreads the bits of a policyId so sequential ids do not cluster in the table.
+     * @param policyId policy number
+     * @return The mixed hash.
+     */
+    static int hash(long policyId) {
+        long h = policyId * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32));
+    }
+}
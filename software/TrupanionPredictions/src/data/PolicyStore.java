@@ -0,0 +1,66 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Holds the policy level data (one row per policy) column by column, looked up by
+ * policyId. Only the monthly premium is kept, for use as a clustering feature.
+ *
+ * @author Nathan Minor
+ */
+public final class PolicyStore {
+
+    // initial number of policy slots
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // internal class variables
+    private final PolicyIndex _slots; // maps each policyId to its slot
+    private double[] _premiums;       // stores the monthly premium, per slot
+
+    /**
+     * Constructs an empty store.
+     */
+    public PolicyStore() {
+        this._slots = new PolicyIndex();
+        this._premiums = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a policy, replacing the premium when the policy was already added.
+     * @param policyId policy number
+     * @param monthlyPremium monthly premium of the policy, NaN when not known
+     */
+    public void add(long policyId, double monthlyPremium) {
+
+        // local variables
+        int slot = this._slots.add(policyId);
+
+        // grow the column when a new slot runs past it
+        if (slot == this._premiums.length) {
+            this._premiums = Arrays.copyOf(this._premiums, this._premiums.length * 2);
+        }
+
+        this._premiums[slot] = monthlyPremium;
+    }
+
+    /**
+     * "Get" method for retrieving the number of policies held.
+     * @return The number of policies.
+     */
+    public int size() {
+        return this._slots.size();
+    }
+
+    /**
+     * "Get" method for retrieving the monthly premium of a policy.
+     * @param policyId policy number
+     * @return The monthly premium, or NaN when the policy is not held.
+     */
+    public double getMonthlyPremium(long policyId) {
+
+        // local variables
+        int slot = this._slots.slotOf(policyId);
+
+        return (slot < 0) ? Double.NaN : this._premiums[slot];
+    }
+}